@@ -7,51 +7,92 @@ import java.util.LinkedList;
 import java.util.List;
 import java.io.File; // Import the File class
 import java.io.FileNotFoundException; // Import this class to handle errors
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Scanner; // Import the Scanner class to read text files
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
-import java.util.stream.Collectors;
-import java.util.Random;
 
 /**
  * Do MDP and Q-learning on the grid
  * **/
 public class A3 {
 
-    static Random random = new Random();
+    static Rng random;
+    static Rng tieBreaks;
     private static Problem problem;
+    private static TransitionModel model;
     private static LinkedList<Query> queries;
-    private static LinkedList<cachedQuery>  cachedQGrid;
-    private static LinkedList<cachedQuery>  cachedMDPGrid;
+    private static QueryIndex mdpQueries;
+    private static QueryIndex rlQueries;
+    private static ResultWriter out;
+    private static SolutionCache cache;
+    //holds the off-heap tables of the solvers, opened and closed by main
+    private static OffHeapArena arena;
+
+    //episodes per flight recorder event
+    static final int EPISODE_BATCH = 100;
+
+    //integers in the coordinate lists of a configuration
+    private static final Pattern NUMBER = Pattern.compile("-?\\d+");
 
     /**
      * Reads in the problem and run Q-learning and MDP
-     * then prints results
+     * printing the answer to every query as soon as its step is reached
      * **/
     public static void main(String args[]) {
 
-        problem = getGridProblem(args[0]);
+        var load = SolverEvents.beginProblemLoad();
+        loadProblem(getGridProblem(args[0]));
+        if(load != null)
+            load.finish(args[0], model);
         queries = getQueries(args[1]);
 
-        cachedQGrid = new LinkedList<>();
-        cachedMDPGrid = new LinkedList<>();
+        out = new ResultWriter(System.out, problem.printBoards);
+        out.println("RNG: " + problem.rng + " seed: " + problem.seed);
+
+        mdpQueries = new QueryIndex(queries, "MDP", model);
+        rlQueries = new QueryIndex(queries, "RL", model);
+        mdpQueries.output = out;
+        rlQueries.output = out;
+
+        if(problem.cacheDir != null)
+            cache = new SolutionCache(Path.of(problem.cacheDir), problem.cacheSizeMB << 20);
 
 
         /**
          * Solve MDP and Q-Learning
+         * answering queries along the way
          * **/
 
 
-        solveMDP();
-        solveQLearning();
+        arena = openArena(problem);
+        try {
+            solveMDP();
+            solveQLearning();
+        } finally {
+            out.close();
+            arena.close();
+        }
 
-        /**
-         * Answer Queries
-         * **/
+    }
 
-        System.out.println("\n\n\nPRINTING QUERY RESULTS\n---------------------------------------");
-        printQueryResults();
+    /**
+     * Make a problem the one being solved and compile its transition model
+     * input: the problem
+     * **/
+    public static void loadProblem(Problem gridProblem){
+        problem = gridProblem;
+        model = new TransitionModel(problem);
+        random = Rng.create(problem.rng, problem.seed);
+        //ties in answers come from their own stream so the queries asked never change what is learned
+        tieBreaks = random.split();
+    }
 
+    //open an arena for the off-heap tables of a problem, in its OffHeapDir when one is set
+    //the caller owns the arena and closes it, which frees the tables and deletes their files
+    static OffHeapArena openArena(Problem problem){
+        return new OffHeapArena(problem.offHeapDir == null ? null : Path.of(problem.offHeapDir));
     }
 
     /**
@@ -60,34 +101,126 @@ public class A3 {
 
 
     /**
-     * Runs the specified number of episodes of Q-learning.
-     * Caches grid states that will be used to answer queries.
+     * Runs Q-learning with the configured mode and prints the solution.
+     * A cached solution answers the queries without learning.
      * **/
     public static void solveQLearning(){
-        var grid = constructQLearning();
+        var key = SolutionCache.fingerprint(problem, "RL");
+        //a seed taken from the clock never repeats, so its solution could never be used again
+        var caching = cache != null && problem.seeded;
+        if(cache != null && !problem.seeded)
+            out.println("\nRL solution is not cached, configure a Seed to cache it");
+        var entry = caching ? cache.lookup(key) : null;
+        QTable table;
+
+        if(entry != null && entry.answers(rlQueries.queriedSteps())){
+            var cached = QTable.create(model, problem.qTable, arena);
+            for(var step : rlQueries.queriedSteps()){
+                cached.load(entry.table(step));
+                rlQueries.answer(step, cached, tieBreaks);
+            }
+            table = QTable.create(model, problem.qTable, arena);
+            table.load(entry.finalTable());
+            out.println("\nRL solution from cache " + key);
+        }
+        else {
+            rlQueries.capture = caching ? cache.capture(key, (long) model.states * TransitionModel.ACTIONS, entry) : null;
+            table = problem.qLearningMode == QLearningMode.SINGLE
+                    ? solveSingleQLearning()
+                    : solveConcurrentQLearning();
+
+            if(caching && !cache.store(key, rlQueries.capture, table.toArray()))
+                out.println("\nRL cache entry " + key + " is larger than CacheSizeMB, it is kept but the cache is over its cap");
+        }
+
+        if(table instanceof SparseQTable)
+            out.println("\nRL Q-table pages allocated: " + ((SparseQTable) table).allocatedPages()
+                    + " of " + ((SparseQTable) table).pageCount());
+        if(table instanceof OffHeapQTable)
+            out.println("\nRL off-heap tables: " + (arena.bytes() >> 10) + " KB");
+        printQSolution(table);
+    }
 
+    /**
+     * Runs the specified number of episodes of Q-learning on a single Q-table.
+     * Answers the queries of every episode as it finishes.
+     * output: the learned Q-table
+     * **/
+    public static QTable solveSingleQLearning(){
+        var learner = new QLearning(model, problem, arena, random);
+        learner.history = openHistory(".rl.hist", (long) model.states * TransitionModel.ACTIONS);
+        learner.metrics = openMetrics(".rl", MetricsRecorder.EPISODE_COLUMNS);
+
+        SolverEvents.EpisodeBatchEvent batch = null;
+        long batchSteps = 0;
         for(int i = 0; i < problem.episodes; i++) {
-            grid = updateQLearning(grid);
-            cacheQGridForQuery(i, grid);
+            if(i % EPISODE_BATCH == 0){
+                batch = SolverEvents.beginEpisodeBatch();
+                batchSteps = 0;
+            }
+
+            var steps = learner.runEpisode();
+            batchSteps += steps;
+            if(learner.metrics != null)
+                learner.recordEpisode(i, steps);
+            rlQueries.answer(i, learner.table, tieBreaks);
+
+            if(learner.history != null)
+                learner.history.endStep(learner.table::toArray);
+
+            if(batch != null && ((i+1) % EPISODE_BATCH == 0 || i+1 == problem.episodes))
+                batch.finish(i / EPISODE_BATCH * EPISODE_BATCH, i % EPISODE_BATCH + 1, batchSteps);
+        }
+        closeHistory(learner.history);
+        closeMetrics(learner.metrics);
+
+        return learner.table;
+    }
+
+    /**
+     * Runs the specified number of episodes of Q-learning with several actors sharing one Q-table.
+     * Queries are answered when the episode with the queried global index finishes.
+     * output: the learned Q-table
+     * **/
+    public static QTable solveConcurrentQLearning(){
+        var learner = new ConcurrentQLearning(model, problem, arena);
+        learner.metrics = openMetrics(".rl", MetricsRecorder.EPISODE_COLUMNS);
+
+        try {
+            learner.run(problem.threads, problem.qLearningMode == QLearningMode.CAS, random,
+                    (episode, table) -> rlQueries.answer(episode, table, tieBreaks));
+        } catch (InterruptedException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
         }
+        closeMetrics(learner.metrics);
 
-        System.out.println("\n-----  Q-LEARNING SOLUTION  -----\n");
-        printTableWide(grid);
+        return learner.table;
     }
 
     /**
-     * Runs one episode of Q-learning
+     * Print the final Q-table when boards are printed
+     * input: the Q-table
+     * **/
+    public static void printQSolution(QTable table){
+        if(!out.printBoards)
+            return;
+
+        out.println("\n-----  Q-LEARNING SOLUTION  -----\n");
+        out.qBoard(table, model);
+    }
+
+    /**
+     * Runs one episode of Q-learning, updating the grid in place
      * input: grid at the start of the episode
-     * output: grid at the end of the episode
      * **/
-    public static QTile[][] updateQLearning(QTile[][] oldGrid){
+    public static void updateQLearning(QTile[][] grid){
 
-        var grid = cpyQGrid(oldGrid);
         var currentState = grid[problem.startState[0]][problem.startState[1]];
 
         while(!currentState.isTerminal){
             var action = getPolicy(currentState);
-            var newState = transition(action, new int[]{currentState.row, currentState.col}, grid);
+            var newState = transition(action, model.state(currentState.row, currentState.col), grid);
             var currValue = getQValue(currentState, action);
 
             var sample = newState.reward + problem.discount*newState.value();
@@ -96,9 +229,6 @@ public class A3 {
             currentState = newState;
 
         }
-
-
-        return grid;
     }
 
     /**
@@ -147,20 +277,21 @@ public class A3 {
      * the new state after doing the action
      * **/
     public static QTile transition(Direction action, int[] currentState, QTile[][] grid){
-        var options = movementSquares(currentState, grid, action);
-        double fwdProb = 1-problem.noise;
-        double leftProb = fwdProb+ (problem.noise/2);
-
-
-        var randomValue = random.nextDouble();
-
-        if(randomValue < fwdProb)
-            return options[0];
-        else if(randomValue < leftProb)
-            return  options[1];
-
-        return options[2];
+        return transition(action, model.state(currentState[0], currentState[1]), grid);
+    }
 
+    /**
+     * Transition state based off the index of the current state and an action
+     * input:
+     * the action being done,
+     * the index of the current state in the transition model,
+     * the grid of states
+     * output:
+     * the new state after doing the action
+     * **/
+    public static QTile transition(Direction action, int currentState, QTile[][] grid){
+        var next = model.sample(currentState, action.ordinal(), random.nextDouble());
+        return grid[next / model.cols][next % model.cols];
     }
 
     /**
@@ -224,17 +355,34 @@ public class A3 {
         var grid = new QTile[problem.vertical][problem.horizontal];
 
         for(int i = 0; i < problem.vertical; i++)
-            for(int j = 0; j < problem.horizontal; j++)
-                grid[i][j] = new QTile(problem.transitionCost,i,j);
+            for(int j = 0; j < problem.horizontal; j++){
+                var state = model.state(i,j);
+                grid[i][j] = new QTile(model.reward(state),i,j);
+                grid[i][j].isTerminal = model.isTerminal(state);
+                grid[i][j].isBoulder = model.isBoulder(state);
+                grid[i][j].terminalValue = model.terminalValue(state);
+            }
+        return grid;
+    }
 
-        for(var terminal : problem.terminalStates){
-            grid[terminal[0]][terminal[1]].isTerminal = true;
-            grid[terminal[0]][terminal[1]].terminalValue = terminal[2];
-        }
+    /**
+     * build a Q-grid from a Q-table
+     * input:
+     * the Q-table
+     * output:
+     * a Q-grid holding the same Q-values
+     * **/
+    public static QTile[][] toQGrid(QTable table){
+        var grid = constructQLearning();
 
-        for(var boulder : problem.boulderStates){
-            grid[boulder[0]][boulder[1]].isBoulder = true;
-        }
+        for(int i = 0; i < problem.vertical; i++)
+            for(int j = 0; j < problem.horizontal; j++){
+                var state = model.state(i,j);
+                grid[i][j].north = table.get(state, Direction.NORTH.ordinal());
+                grid[i][j].east = table.get(state, Direction.EAST.ordinal());
+                grid[i][j].west = table.get(state, Direction.WEST.ordinal());
+                grid[i][j].south = table.get(state, Direction.SOUTH.ordinal());
+            }
         return grid;
     }
 
@@ -250,111 +398,235 @@ public class A3 {
      * when in this position on the grid
      * **/
     public static QTile[] movementSquares(int[] location, QTile[][] grid, Direction direction){
-        var forward = new int[2];
-        var right = new int[2];
-        var left = new int[2];
+        var next = new int[TransitionModel.OUTCOMES];
+        model.outcomes(model.state(location[0], location[1]), direction.ordinal(), next, new double[TransitionModel.OUTCOMES]);
+        var returnVal = new QTile[TransitionModel.OUTCOMES];
 
-        if (direction == Direction.NORTH){
-            forward[0] = location[0]-1;
-            forward[1] = location[1];
+        for(int o = 0; o < TransitionModel.OUTCOMES; o++)
+            returnVal[o] = grid[next[o] / model.cols][next[o] % model.cols];
+        return returnVal;
+    }
 
-            right[0] = location[0];
-            right[1] = location[1]+1;
 
-            left[0] = location[0];
-            left[1] = location[1]-1;
+    /**
+     *  MDP VALUE INTERATION FUNCTIONS
+     *
+     * **/
 
+    /**
+     * Solves the MDP with the configured solver and prints the solution.
+     * Answers the queries of every iteration as it is reached, or from the cached solution.
+     * **/
+    public static void solveMDP(){
+        var key = SolutionCache.fingerprint(problem, "MDP");
+        var entry = cache == null ? null : cache.lookup(key);
+        double[] values;
+
+        if(entry != null && entry.answers(mdpQueries.queriedSteps())){
+            for(var step : mdpQueries.queriedSteps())
+                mdpQueries.answer(step, ValueTable.of(entry.table(step)), model);
+            values = entry.finalTable();
+            out.println("\nMDP solution from cache " + key);
+        }
+        else {
+            mdpQueries.capture = cache == null ? null : cache.capture(key, model.states, entry);
+            //value iteration sets the step its values stop at, the other solvers answer every step with their final values
+            if(mdpQueries.capture != null && problem.solver != SolverMode.JACOBI && problem.solver != SolverMode.GAUSS_SEIDEL)
+                mdpQueries.capture.finalStep = 0;
+
+            if(problem.solver == SolverMode.PRIORITIZED)
+                values = solvePrioritizedSweeping();
+            else if(problem.solver == SolverMode.POLICY_ITERATION || problem.solver == SolverMode.EXACT)
+                values = solvePolicyIteration();
+            else if(problem.solver == SolverMode.MULTIGRID)
+                values = solveMultigrid();
+            else
+                values = solveValueIteration();
+
+            if(cache != null && !cache.store(key, mdpQueries.capture, values))
+                out.println("\nMDP cache entry " + key + " is larger than CacheSizeMB, it is kept but the cache is over its cap");
         }
-        else if(direction == Direction.SOUTH){
-            forward[0] = location[0]+1;
-            forward[1] = location[1];
-
-            right[0] = location[0];
-            right[1] = location[1]-1;
-
-            left[0] = location[0];
-            left[1] = location[1]+1;
 
+        if(out.printBoards){
+            out.println("\n-----  MDP SOLUTION  -----\n");
+            out.valueBoard(values, model);
         }
-        else if(direction == Direction.EAST){
-            forward[0] = location[0];
-            forward[1] = location[1]+1;
 
-            right[0] = location[0]+1;
-            right[1] = location[1];
+    }
 
-            left[0] = location[0]-1;
-            left[1] = location[1];
+    /**
+     * Runs the specified number of iterations of MDP learning,
+     * as synchronous sweeps or as in-place Gauss-Seidel sweeps.
+     * When an epsilon is configured iteration stops early once the
+     * Bellman residual guarantees an epsilon-optimal greedy policy.
+     * The value tables are kept off the heap when OffHeapValues is set.
+     * output: the value table after the last iteration, for off-heap tables a heap copy
+     * when the board or the solution cache needs one and otherwise null
+     * **/
+    public static double[] solveValueIteration(){
+        var tables = problem.offHeapValues ? arena : null;
+        var solver = problem.threads > 1 && problem.solver == SolverMode.JACOBI
+                ? new ParallelValueIteration(model, problem.threads, tables)
+                : new ValueIteration(model, tables);
+        var history = openHistory(".mdp.hist", model.states);
+        var metrics = openMetrics(".mdp", MetricsRecorder.SWEEP_COLUMNS);
+        var stoppingResidual = ValueIteration.stoppingResidual(problem.epsilon, problem.discount);
+
+        int i = 0;
+        for(; i < problem.k; i++) {
+            var event = SolverEvents.beginSweep();
+            long start = metrics == null ? 0 : System.nanoTime();
+            long backups = solver.backups;
+            var residual = problem.solver == SolverMode.GAUSS_SEIDEL
+                    ? solver.sweepInPlace(problem.sweepOrder, i)
+                    : solver.sweep();
+            if(event != null)
+                event.finish(problem.solver.name(), 0, i, solver.backups - backups, residual);
+            if(metrics != null)
+                recordSweep(metrics, i, residual, solver.backups - backups, System.nanoTime() - start);
+            mdpQueries.answer(i, solver.values(), model);
+
+            if(history != null){
+                var values = solver.values().heap();
+                history.recordTable(values);
+                history.endStep(values);
+            }
 
+            if(problem.epsilon > 0 && residual < stoppingResidual){
+                out.println("\nMDP converged after " + (i+1) + " iterations, residual: " + residual);
+                break;
+            }
         }
-        else if(direction == Direction.WEST){
-            forward[0] = location[0];
-            forward[1] = location[1]-1;
 
-            right[0] = location[0]-1;
-            right[1] = location[1];
+        //queries past the stopping point get the converged values
+        for(int j = i+1; j < problem.k; j++)
+            mdpQueries.answer(j, solver.values(), model);
+        if(mdpQueries.capture != null)
+            mdpQueries.capture.finalStep = Math.min(i, problem.k - 1);
 
-            left[0] = location[0]+1;
-            left[1] = location[1];
+        if(solver instanceof ParallelValueIteration)
+            ((ParallelValueIteration) solver).close();
+        closeHistory(history);
+        closeMetrics(metrics);
 
-        }
+        out.println("\nMDP backups: " + solver.backups);
+        if(tables == null)
+            return solver.values().heap();
 
-        if(!isValidMovement(forward[0], forward[1], grid)){
-            forward[0] = location[0];
-            forward[1] = location[1];
-        }
-        if(!isValidMovement(left[0], left[1], grid)){
-            left[0] = location[0];
-            left[1] = location[1];
-        }
-        if(!isValidMovement(right[0], right[1], grid)){
-            right[0] = location[0];
-            right[1] = location[1];
-        }
-
-        var returnVal = new QTile[]{grid[forward[0]][forward[1]], grid[right[0]][right[1]], grid[left[0]][left[1]]};
+        out.println("MDP off-heap tables: " + (tables.bytes() >> 10) + " KB");
+        return out.printBoards || cache != null ? solver.values().heap() : null;
+    }
 
-        return returnVal;
+    //the solvers that keep their tables on the heap say so instead of ignoring OffHeapValues
+    private static void noteHeapTables(){
+        if(problem.offHeapValues)
+            out.println("\nMDP " + problem.solver + " keeps its tables on the heap, OffHeapValues only applies to value iteration and multigrid");
     }
 
     /**
-     * check if a tile is obstructed by a boulder or edge of the grid
-     * input:
-     * i: the row of the tile
-     * j: the column of the tile
-     * output:
-     * returns true if the movement is possible, false otherwise
+     * Runs prioritized sweeping until every Bellman error is within tolerance.
+     * There are no iterations, so every MDP query is answered with the converged values.
+     * output: the converged value table
      * **/
-    public static boolean isValidMovement(int i, int j, QTile[][] grid){
-        var valid = true;
-        if(i > grid.length-1 || j > grid[0].length-1 || i < 0 || j < 0)
-            valid = false;
-        else if(grid[i][j].isBoulder)
-            valid = false;
-        return valid;
-    }
+    public static double[] solvePrioritizedSweeping(){
+        var epsilon = problem.epsilon > 0 ? problem.epsilon : ValueIteration.DEFAULT_EPSILON;
+        var solver = new PrioritizedSweeping(model);
+        noteHeapTables();
 
+        solver.seedAll();
+        solver.solve(ValueIteration.stoppingResidual(epsilon, problem.discount));
+
+        var values = ValueTable.of(solver.values());
+        for(int i = 0; i < problem.k; i++)
+            mdpQueries.answer(i, values, model);
+
+        out.println("\nMDP backups: " + solver.backups);
+        return solver.values();
+    }
 
     /**
-     *  MDP VALUE INTERATION FUNCTIONS
-     *
+     * Runs policy iteration until the policy is stable, for at most K rounds.
+     * The exact solver evaluates every policy with a linear solve to a tight tolerance, giving V*.
+     * There are no iterations, so every MDP query is answered with the final values.
+     * output: the value table of the final policy
      * **/
+    public static double[] solvePolicyIteration(){
+        var exact = problem.solver == SolverMode.EXACT;
+        var epsilon = problem.epsilon > 0 ? problem.epsilon
+                : exact ? PolicyEvaluation.EXACT_EPSILON : ValueIteration.DEFAULT_EPSILON;
+        var solver = new PolicyIteration(model, problem.evaluationSweeps, exact || problem.exactEvaluation, problem.k);
+        noteHeapTables();
+
+        solver.solve(ValueIteration.stoppingResidual(epsilon, problem.discount));
+        if(!solver.converged)
+            out.println("\nMDP policy iteration stopped after " + solver.rounds + " rounds without converging, residual: " + solver.residual);
+
+        var values = ValueTable.of(solver.values());
+        for(int i = 0; i < problem.k; i++)
+            mdpQueries.answer(i, values, model);
+
+        out.println("\nMDP backups: " + solver.backups() + " in " + solver.rounds + " rounds ("
+                + solver.evaluationBackups + " evaluation in " + millis(solver.evaluationNanos) + " ms, "
+                + solver.improvementBackups + " improvement in " + millis(solver.improvementNanos) + " ms)");
+        compareValueIteration(ValueIteration.stoppingResidual(epsilon, problem.discount));
+        return solver.values();
+    }
 
     /**
-     * Runs the specified number of iterations of MDP learning.
-     * Caches grid states that will be used to answer queries.
+     * Runs value iteration from a cold start to the residual policy iteration stopped at,
+     * for at most MAX_SWEEPS sweeps like a multigrid level, and reports its backups and time next to those of policy iteration
+     * input: the residual to reach
      * **/
-    public static void solveMDP(){
-        var grid = constructMDP();
-
-        for(int i = 0; i < problem.k; i++) {
-            grid = iterateGrid(grid);
-            cacheMDPGridForQuery(i, grid);
-        }
+    private static void compareValueIteration(double stoppingResidual){
+        var solver = new ValueIteration(model);
+        long start = System.nanoTime();
+        int sweeps = 0;
+        double residual;
+        do {
+            residual = solver.sweep();
+            sweeps++;
+        } while(residual >= stoppingResidual && sweeps < MultigridValueIteration.MAX_SWEEPS);
+        long nanos = System.nanoTime() - start;
+
+        out.println("value iteration to the same epsilon: " + solver.backups + " backups in " + sweeps + " sweeps, "
+                + millis(nanos) + " ms" + (residual < stoppingResidual ? "" : ", stopped without converging, residual: " + residual));
+    }
 
-        System.out.println("\n-----  MDP SOLUTION  -----\n");
-        printTable(grid);
+    //whole milliseconds of a time in nanoseconds
+    private static long millis(long nanos){
+        return nanos / 1000000;
+    }
 
+    /**
+     * Runs value iteration on coarsened grids first, each warm starting the next finer one,
+     * with coarse-grid corrections between sweeps.
+     * There are no iterations, so every MDP query is answered with the converged values.
+     * The value tables of the original grid are kept off the heap when OffHeapValues is set.
+     * output: the converged value table, a heap copy for off-heap tables
+     * **/
+    public static double[] solveMultigrid(){
+        var epsilon = problem.epsilon > 0 ? problem.epsilon : ValueIteration.DEFAULT_EPSILON;
+        var tables = problem.offHeapValues ? arena : null;
+        var solver = new MultigridValueIteration(model, problem, tables);
+
+        solver.solve(epsilon);
+        if(!solver.converged)
+            out.println("\nMDP multigrid stopped after " + MultigridValueIteration.MAX_SWEEPS + " sweeps of a level without converging");
+
+        for(int i = 0; i < problem.k; i++)
+            mdpQueries.answer(i, solver.values(), model);
+
+        var sizes = new StringBuilder();
+        for(int level = solver.levels.size() - 1; level >= 0; level--)
+            sizes.append(level == solver.levels.size() - 1 ? "" : ", ")
+                    .append(solver.levels.get(level).rows).append('x').append(solver.levels.get(level).cols)
+                    .append(": ").append(solver.sweeps[level]);
+
+        out.println("\nMDP backups: " + solver.backups + ", sweeps per level: " + sizes + ", corrections: " + solver.corrections
+                + (solver.dropped > 0 ? " (" + solver.dropped + " dropped)" : ""));
+        if(tables != null)
+            out.println("MDP off-heap tables: " + (tables.bytes() >> 10) + " KB");
+        return solver.values().heap();
     }
 
     /**
@@ -368,7 +640,7 @@ public class A3 {
         for(int i = 0; i < problem.vertical; i++)
             for(int j = 0; j < problem.horizontal; j++)
                 if(!newGrid[i][j].isBoulder && !newGrid[i][j].isTerminal){
-                    newGrid[i][j].value = computeActionFromValues(new int[]{i,j}, oldGrid).value;
+                    newGrid[i][j].value = computeActionFromValues(model.state(i,j), oldGrid).value;
                 }
         return newGrid;
     }
@@ -381,13 +653,24 @@ public class A3 {
      * output: an action/state tuple of the highest value action
      * **/
     public static tuple computeActionFromValues(int[] location, MDPTile[][] grid){
+        return computeActionFromValues(model.state(location[0], location[1]), grid);
+    }
+
+    /**
+     * Compute the expectimax value of an action for the state with the given index
+     * input:
+     * the index of the state in the transition model
+     * the problem state
+     * output: an action/state tuple of the highest value action
+     * **/
+    public static tuple computeActionFromValues(int state, MDPTile[][] grid){
         double value = Double.NEGATIVE_INFINITY;
 
         Direction action = Direction.NORTH;
 
         //Take the max value over all actions
         for(var dir : Direction.values()){
-            var moveValue = valueOfMove(location, grid, dir);
+            var moveValue = valueOfMove(state, grid, dir);
             if(moveValue > value){
                 value = moveValue;
                 action = dir;
@@ -405,16 +688,28 @@ public class A3 {
      * output: the value of that action in that state
      * **/
     public static double valueOfMove(int[] location, MDPTile[][] grid, Direction direction){
-        double value = 0;
-        double plannedMoveProb = 1.0- problem.noise;
-        double notPlannedMoveProb = problem.noise/2;
-
-        var movement = movementSquares(location, grid, direction);
+        return valueOfMove(model.state(location[0], location[1]), grid, direction);
+    }
 
-        //Sum across possible states
-        value += plannedMoveProb*(movement[0].reward + problem.discount*movement[0].value);
-        value += notPlannedMoveProb*(movement[1].reward + problem.discount*movement[1].value);
-        value += notPlannedMoveProb*(movement[2].reward + problem.discount*movement[2].value);
+    /**
+     * Compute the value of a move in the state with the given index
+     * input:
+     * the index of the state in the transition model
+     * the problem state
+     * the action being done
+     * output: the value of that action in that state
+     * **/
+    public static double valueOfMove(int state, MDPTile[][] grid, Direction direction){
+        double value = 0;
+        var next = new int[TransitionModel.OUTCOMES];
+        var probability = new double[TransitionModel.OUTCOMES];
+        model.outcomes(state, direction.ordinal(), next, probability);
+
+        //Sum across possible states, merged outcomes have zero probability
+        for(int o = 0; o < TransitionModel.OUTCOMES; o++){
+            var tile = grid[next[o] / model.cols][next[o] % model.cols];
+            value += probability[o]*(tile.reward + problem.discount*tile.value);
+        }
 
         return value;
     }
@@ -432,86 +727,13 @@ public class A3 {
      * when in this position on the grid
      * **/
     public static MDPTile[] movementSquares(int[] location, MDPTile[][] grid, Direction direction){
-        var forward = new int[2];
-        var right = new int[2];
-        var left = new int[2];
-
-        if (direction == Direction.NORTH){
-            forward[0] = location[0]-1;
-            forward[1] = location[1];
-
-            right[0] = location[0];
-            right[1] = location[1]+1;
-
-            left[0] = location[0];
-            left[1] = location[1]-1;
-
-        }
-        else if(direction == Direction.SOUTH){
-            forward[0] = location[0]+1;
-            forward[1] = location[1];
-
-            right[0] = location[0];
-            right[1] = location[1]-1;
-
-            left[0] = location[0];
-            left[1] = location[1]+1;
-
-        }
-        else if(direction == Direction.EAST){
-            forward[0] = location[0];
-            forward[1] = location[1]+1;
-
-            right[0] = location[0]+1;
-            right[1] = location[1];
+        var next = new int[TransitionModel.OUTCOMES];
+        model.outcomes(model.state(location[0], location[1]), direction.ordinal(), next, new double[TransitionModel.OUTCOMES]);
+        var returnVal = new MDPTile[TransitionModel.OUTCOMES];
 
-            left[0] = location[0]-1;
-            left[1] = location[1];
-
-        }
-        else if(direction == Direction.WEST){
-            forward[0] = location[0];
-            forward[1] = location[1]-1;
-
-            right[0] = location[0]-1;
-            right[1] = location[1];
-
-            left[0] = location[0]+1;
-            left[1] = location[1];
-
-        }
-
-        if(!isValidMovement(forward[0], forward[1], grid)){
-            forward[0] = location[0];
-            forward[1] = location[1];
-        }
-        if(!isValidMovement(left[0], left[1], grid)){
-            left[0] = location[0];
-            left[1] = location[1];
-        }
-        if(!isValidMovement(right[0], right[1], grid)){
-            right[0] = location[0];
-            right[1] = location[1];
-        }
-
-        return new MDPTile[]{grid[forward[0]][forward[1]], grid[right[0]][right[1]], grid[left[0]][left[1]]};
-    }
-
-    /**
-     * check if a tile is obstructed by a boulder or edge of the grid
-     * input:
-     * i: the row of the tile
-     * j: the column of the tile
-     * output:
-     * returns true if the movement is possible, false otherwise
-     * **/
-    public static boolean isValidMovement(int i, int j, MDPTile[][] grid){
-        var valid = true;
-        if(i > grid.length-1 || j > grid[0].length-1 || i < 0 || j < 0)
-            valid = false;
-        else if(grid[i][j].isBoulder)
-            valid = false;
-        return valid;
+        for(int o = 0; o < TransitionModel.OUTCOMES; o++)
+            returnVal[o] = grid[next[o] / model.cols][next[o] % model.cols];
+        return returnVal;
     }
 
     /**
@@ -523,17 +745,29 @@ public class A3 {
         var grid = new MDPTile[problem.vertical][problem.horizontal];
 
         for(int i = 0; i < problem.vertical; i++)
-            for(int j = 0; j < problem.horizontal; j++)
-                grid[i][j] = new MDPTile(problem.transitionCost,i,j);
+            for(int j = 0; j < problem.horizontal; j++){
+                var state = model.state(i,j);
+                grid[i][j] = new MDPTile(model.reward(state),i,j);
+                grid[i][j].isTerminal = model.isTerminal(state);
+                grid[i][j].isBoulder = model.isBoulder(state);
+                grid[i][j].value = model.terminalValue(state);
+            }
+        return grid;
+    }
 
-        for(var terminal : problem.terminalStates){
-            grid[terminal[0]][terminal[1]].isTerminal = true;
-            grid[terminal[0]][terminal[1]].value = terminal[2];
-        }
+    /**
+     * build an MDP-grid from a table of state values
+     * input:
+     * the value of every state, indexed as in the transition model
+     * output:
+     * the MDP-grid holding those values
+     * **/
+    public static MDPTile[][] toMDPGrid(double[] values){
+        var grid = constructMDP();
 
-        for(var boulder : problem.boulderStates){
-            grid[boulder[0]][boulder[1]].isBoulder = true;
-        }
+        for(int i = 0; i < problem.vertical; i++)
+            for(int j = 0; j < problem.horizontal; j++)
+                grid[i][j].value = values[model.state(i,j)];
         return grid;
     }
 
@@ -542,62 +776,92 @@ public class A3 {
     *
     **/
 
+    /**
+     * Open a history recorder when a history file is configured
+     * input:
+     * the suffix added to the configured history path
+     * the number of slots of the recorded table
+     * output: the recorder, or null when no history is recorded
+     * **/
+    public static HistoryRecorder openHistory(String suffix, long tableSize){
+        if(problem.history == null)
+            return null;
+
+        try {
+            return new HistoryRecorder(Path.of(problem.history + suffix), tableSize, problem.keyframeInterval);
+        } catch (IOException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+            return null;
+        }
+    }
 
     /**
-     * Print the answers to every query
+     * Finish a history file
+     * input: the recorder, may be null
      * **/
-    public static void printQueryResults(){
-        for(var q : cachedMDPGrid)
-            printQueryAnswers(q);
+    public static void closeHistory(HistoryRecorder history){
+        if(history == null)
+            return;
 
-        for(var q : cachedQGrid)
-            printQueryAnswers(q);
+        try {
+            history.close();
+        } catch (IOException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        }
     }
 
     /**
-     * Cache a grid for an RL query
+     * Open the metrics file of a solver when metrics are configured
      * input:
-     * the step being cached
-     * the problem state
+     * the suffix added to the configured path prefix, before the format's extension
+     * the names of the columns
+     * output: the recorder, or null when metrics are off
      * **/
-    public static void cacheQGridForQuery(int iteration, QTile[][] grid){
+    public static MetricsRecorder openMetrics(String suffix, String[] columns){
+        if(problem.metrics == null)
+            return null;
 
-        for (var query : queries){
-            if(query.method.equals("RL") && query.steps == iteration){
-                cachedQGrid.add(new cachedQuery(query, null, grid));
-            }
+        var extension = problem.metricsFormat == MetricsFormat.JSONL ? ".jsonl" : ".csv";
+        try {
+            return new MetricsRecorder(Path.of(problem.metrics + suffix + extension), problem.metricsFormat, columns);
+        } catch (IOException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+            return null;
         }
+    }
 
+    //record the residual, wall time and backup rate of a sweep
+    private static void recordSweep(MetricsRecorder metrics, int iteration, double residual, long backups, long nanos){
+        metrics.record(iteration, residual, nanos / 1e6, backups, MetricsRecorder.rate(backups, nanos));
     }
 
     /**
-     * Cache a grid for an MDP query
-     * input:
-     * the step being cached
-     * the problem state
+     * Write the remaining rows of a metrics file
+     * input: the recorder, may be null
      * **/
-    public static void cacheMDPGridForQuery(int iteration, MDPTile[][] grid){
-        for (var query : queries){
-            if(query.method.equals("MDP") && query.steps == iteration){
-                cachedMDPGrid.add(new cachedQuery(query, grid, null));
-            }
+    public static void closeMetrics(MetricsRecorder metrics){
+        if(metrics == null)
+            return;
+
+        try {
+            metrics.close();
+        } catch (IOException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
         }
     }
 
+
     /**
      * Print a table of objects
      * input:
      * a table of objects
      * **/
     public static void printTable(Object[][] table){
-        var formattingStr = "";
-
-        for(int i = 0; i < table[0].length;i++)
-            formattingStr += "%15s";
-
-        for (final Object[] row : table) {
-            System.out.format(formattingStr+"%n", row);
-        }
+        out.table(table, ResultWriter.VALUE_WIDTH);
     }
 
     /**
@@ -606,23 +870,19 @@ public class A3 {
      * a table of objects
      * **/
     public static void printTableWide(Object[][] table){
-        var formattingStr = "";
-
-        for(int i = 0; i < table[0].length;i++)
-            formattingStr += "%42s";
-
-        for (final Object[] row : table) {
-            System.out.format(formattingStr+"%n", row);
-        }
+        out.table(table, ResultWriter.Q_WIDTH);
     }
 
     /**
      * Read in the grid problem from a file
      * input:
-     * filepath as a string
+     * filepath as a string, either a text configuration or a binary map
      * **/
     public static Problem getGridProblem(String fileName){
 
+        if(GridMap.isGridMap(Path.of(fileName)))
+            return GridMap.open(Path.of(fileName)).toProblem();
+
         int horizontal = Integer.MAX_VALUE;
         int vertical = Integer.MAX_VALUE;
         LinkedList<int[]> terminalStates = new LinkedList<int[]>();
@@ -634,22 +894,48 @@ public class A3 {
         double alpha = Double.MAX_VALUE;
         double noise = Double.MAX_VALUE;
         double transitionCost = Double.MAX_VALUE;
+        double epsilon = 0;
+        SolverMode solver = SolverMode.JACOBI;
+        SweepOrder sweepOrder = SweepOrder.ROW_MAJOR;
+        int threads = 1;
+        QLearningMode qLearningMode = QLearningMode.SINGLE;
+        RngKind rng = RngKind.SPLITTABLE;
+        long seed = System.nanoTime();
+        boolean seeded = false;
+        String history = null;
+        boolean printBoards = true;
+        int keyframeInterval = 1000;
+        String map = null;
+        String cacheDir = null;
+        long cacheSizeMB = 256;
+        int evaluationSweeps = 0;
+        boolean exactEvaluation = false;
+        QTableKind qTable = QTableKind.DENSE;
+        boolean offHeapValues = false;
+        String offHeapDir = null;
+        String metrics = null;
+        MetricsFormat metricsFormat = MetricsFormat.CSV;
 
         try {
             File myObj = new File(fileName);
             Scanner myReader = new Scanner(myObj);
             while (myReader.hasNextLine()) {
                 String data = myReader.nextLine();
-                if(data.toLowerCase().contains("horizontal")){
-                    String[] parts = data.split("=");
-                    horizontal = Integer.parseInt(parts[1]);
+                int split = data.indexOf('=');
+                if(split < 0)
+                    continue;
+
+                String key = data.substring(0, split).trim().toLowerCase();
+                String value = data.substring(split + 1).trim();
+
+                if(key.equals("horizontal")){
+                    horizontal = Integer.parseInt(value);
                 }
-                else if(data.toLowerCase().contains("vertical")){
-                    String[] parts = data.split("=");
-                    vertical = Integer.parseInt(parts[1]);
+                else if(key.equals("vertical")){
+                    vertical = Integer.parseInt(value);
                 }
-                else if(data.toLowerCase().contains("terminal")){
-                    List<Integer> values = extractNumbersRegexStyle(data);
+                else if(key.equals("terminal")){
+                    List<Integer> values = extractNumbersRegexStyle(value);
                     for(int i = 1; i < values.size(); i += 4){
                         int arr[] = new int[3];
                         arr[0] = values.get(i);
@@ -658,8 +944,8 @@ public class A3 {
                         terminalStates.add(arr);
                     }
                 }
-                else if(data.toLowerCase().contains("boulder")){
-                    List<Integer> values = extractNumbersRegexStyle(data);
+                else if(key.equals("boulder")){
+                    List<Integer> values = extractNumbersRegexStyle(value);
                     for(int i = 1; i < values.size(); i += 3){
                         int arr[] = new int[2];
                         arr[0] = values.get(i);
@@ -667,36 +953,91 @@ public class A3 {
                         boulderStates.add(arr);
                     }
                 }
-                else if(data.toLowerCase().contains("robotstartstate")){
-                    List<Integer> values = extractNumbersRegexStyle(data);
+                else if(key.equals("robotstartstate")){
+                    List<Integer> values = extractNumbersRegexStyle(value);
                     startState[0] = values.get(0);
                     startState[1] = values.get(1);
-
-
                 }
-                else if(data.toLowerCase().contains("k")){
-                    String[] parts = data.split("=");
-                    k = Integer.parseInt(parts[1]);
+                else if(key.equals("map")){
+                    map = value;
                 }
-                else if(data.toLowerCase().contains("episodes")){
-                    String[] parts = data.split("=");
-                    episodes = Integer.parseInt(parts[1]);
+                else if(key.equals("cachedir")){
+                    cacheDir = value;
                 }
-                else if(data.toLowerCase().contains("discount")){
-                    String[] parts = data.split("=");
-                    discount = Double.parseDouble(parts[1]);
+                else if(key.equals("cachesizemb")){
+                    cacheSizeMB = Long.parseLong(value);
                 }
-                else if(data.toLowerCase().contains("alpha")){
-                    String[] parts = data.split("=");
-                    alpha = Double.parseDouble(parts[1]);
+                else if(key.equals("epsilon")){
+                    epsilon = Double.parseDouble(value);
                 }
-                else if(data.toLowerCase().contains("noise")){
-                    String[] parts = data.split("=");
-                    noise = Double.parseDouble(parts[1]);
+                else if(key.equals("solver")){
+                    solver = SolverMode.fromConfig(value);
                 }
-                else if(data.toLowerCase().contains("transitioncost")){
-                    String[] parts = data.split("=");
-                    transitionCost = Double.parseDouble(parts[1]);
+                else if(key.equals("evaluationsweeps")){
+                    evaluationSweeps = Integer.parseInt(value);
+                }
+                else if(key.equals("exactevaluation")){
+                    exactEvaluation = Boolean.parseBoolean(value);
+                }
+                else if(key.equals("sweeporder")){
+                    sweepOrder = SweepOrder.fromConfig(value);
+                }
+                else if(key.equals("threads")){
+                    threads = Integer.parseInt(value);
+                }
+                else if(key.equals("qlearning")){
+                    qLearningMode = QLearningMode.valueOf(value.toUpperCase());
+                }
+                else if(key.equals("qtable")){
+                    qTable = QTableKind.fromConfig(value);
+                }
+                else if(key.equals("offheapvalues")){
+                    offHeapValues = Boolean.parseBoolean(value);
+                }
+                else if(key.equals("offheapdir")){
+                    offHeapDir = value;
+                }
+                else if(key.equals("metrics")){
+                    metrics = value;
+                }
+                else if(key.equals("metricsformat")){
+                    metricsFormat = MetricsFormat.valueOf(value.toUpperCase());
+                }
+                else if(key.equals("rng")){
+                    rng = RngKind.valueOf(value.toUpperCase());
+                }
+                else if(key.equals("seed")){
+                    seed = Long.parseLong(value);
+                    seeded = true;
+                }
+                else if(key.equals("history")){
+                    history = value;
+                }
+                else if(key.equals("keyframeinterval")){
+                    keyframeInterval = Integer.parseInt(value);
+                    if(keyframeInterval < 1)
+                        throw new IllegalArgumentException("KeyframeInterval has to be at least 1, not " + value);
+                }
+                else if(key.equals("printboards")){
+                    printBoards = Boolean.parseBoolean(value);
+                }
+                else if(key.equals("k")){
+                    k = Integer.parseInt(value);
+                }
+                else if(key.equals("episodes")){
+                    episodes = Integer.parseInt(value);
+                }
+                else if(key.equals("discount")){
+                    discount = Double.parseDouble(value);
+                }
+                else if(key.equals("alpha")){
+                    alpha = Double.parseDouble(value);
+                }
+                else if(key.equals("noise")){
+                    noise = Double.parseDouble(value);
+                }
+                else if(key.equals("transitioncost")){
+                    transitionCost = Double.parseDouble(value);
                 }
             }
         } catch (FileNotFoundException e) {
@@ -711,6 +1052,49 @@ public class A3 {
             flipCoordinate(i, vertical);
         flipCoordinate(startState, vertical);
 
+        //-------------------- a binary map supplies the grid, it is stored flipped already
+        GridMap gridMap = null;
+        if(map != null){
+            gridMap = GridMap.open(Path.of(map));
+            horizontal = gridMap.cols;
+            vertical = gridMap.rows;
+            startState = new int[]{gridMap.startRow, gridMap.startCol};
+
+            //the settings in the header are the defaults, the text configuration overrides them
+            if(k == Integer.MAX_VALUE)
+                k = gridMap.k;
+            if(episodes == Integer.MAX_VALUE)
+                episodes = gridMap.episodes;
+            if(discount == Double.MAX_VALUE)
+                discount = gridMap.discount;
+            if(alpha == Double.MAX_VALUE)
+                alpha = gridMap.alpha;
+            if(noise == Double.MAX_VALUE)
+                noise = gridMap.noise;
+            if(transitionCost == Double.MAX_VALUE)
+                transitionCost = gridMap.transitionCost;
+        }
+
+        //-------------------- every setting of the problem is required
+        var missing = new ArrayList<String>();
+        if(horizontal == Integer.MAX_VALUE)
+            missing.add("Horizontal");
+        if(vertical == Integer.MAX_VALUE)
+            missing.add("Vertical");
+        if(k == Integer.MAX_VALUE)
+            missing.add("K");
+        if(episodes == Integer.MAX_VALUE)
+            missing.add("Episodes");
+        if(discount == Double.MAX_VALUE)
+            missing.add("Discount");
+        if(alpha == Double.MAX_VALUE)
+            missing.add("alpha");
+        if(noise == Double.MAX_VALUE)
+            missing.add("Noise");
+        if(transitionCost == Double.MAX_VALUE)
+            missing.add("TransitionCost");
+        if(!missing.isEmpty())
+            throw new IllegalArgumentException(fileName + " is missing " + String.join(", ", missing));
 
         Problem problemFromFile = new Problem(
                 horizontal,
@@ -724,6 +1108,27 @@ public class A3 {
                 alpha,
                 noise,
                 transitionCost);
+        problemFromFile.epsilon = epsilon;
+        problemFromFile.solver = solver;
+        problemFromFile.sweepOrder = sweepOrder;
+        problemFromFile.evaluationSweeps = evaluationSweeps;
+        problemFromFile.exactEvaluation = exactEvaluation;
+        problemFromFile.threads = threads;
+        problemFromFile.qLearningMode = qLearningMode;
+        problemFromFile.qTable = qTable;
+        problemFromFile.offHeapValues = offHeapValues;
+        problemFromFile.offHeapDir = offHeapDir;
+        problemFromFile.metrics = metrics;
+        problemFromFile.metricsFormat = metricsFormat;
+        problemFromFile.rng = rng;
+        problemFromFile.seed = seed;
+        problemFromFile.seeded = seeded;
+        problemFromFile.history = history;
+        problemFromFile.keyframeInterval = keyframeInterval;
+        problemFromFile.printBoards = printBoards;
+        problemFromFile.map = gridMap;
+        problemFromFile.cacheDir = cacheDir;
+        problemFromFile.cacheSizeMB = cacheSizeMB;
 
         return problemFromFile;
     }
@@ -742,22 +1147,20 @@ public class A3 {
     /**
      * Extract values from file using regex
      * input:
-     * regex to match
+     * the string to extract the integers of
      * **/
     public static List<Integer> extractNumbersRegexStyle(String str) {
-        List<String> arr = new ArrayList<>();
-        Pattern p = Pattern.compile("-?\\d+");
-        Matcher m = p.matcher(str);
+        List<Integer> arr = new ArrayList<>();
+        Matcher m = NUMBER.matcher(str);
         while (m.find()) {
-            arr.add(m.group());
+            arr.add(Integer.parseInt(m.group()));
         }
-        return arr.stream()
-                .map(Integer::parseInt)
-                .collect(Collectors.toList());
+        return arr;
     }
 
     /**
-     * Read in the queries from file
+     * Read in the queries from file, a query kind other than bestPolicy, bestQValue
+     * or stateValue is rejected with the line it is on
      * input: filepath as string
      * **/
     public static LinkedList<Query> getQueries(String fileName){
@@ -765,8 +1168,10 @@ public class A3 {
         try {
             File myObj = new File(fileName);
             Scanner myReader = new Scanner(myObj);
+            int line = 0;
             while (myReader.hasNextLine()) {
                 String data = myReader.nextLine();
+                line++;
                 String[] values = data.split(",");
                 if(values.length == 5){
                     int column = Integer.parseInt(values[0]);
@@ -774,6 +1179,8 @@ public class A3 {
                     int steps = Integer.parseInt(values[2]);
                     String method = values[3];
                     String query = values[4];
+                    if(!query.equals("bestPolicy") && !query.equals("bestQValue") && !query.equals("stateValue"))
+                        throw new IllegalArgumentException(fileName + " line " + line + ": unknown query kind " + query);
 
                     //flip row
                     row = problem.vertical - 1 - row;
@@ -789,46 +1196,11 @@ public class A3 {
         return queries;
     }
 
-    /**
-     * Print answers to query
-     * input: the query information that has been cached
-     * **/
-    public static void printQueryAnswers(cachedQuery cachedQuery){
-        if( cachedQuery.query.method.equals("MDP")) {
-            if (cachedQuery.query.query.equals("stateValue")) {
-                System.out.println("\nBOARD AT STEP " + cachedQuery.query.steps  + "\n------------------------------\n");
-                printTable(cachedQuery.mdpgrid);
-                System.out.println(cachedQuery.query + " : " + cachedQuery.mdpgrid[cachedQuery.query.row][cachedQuery.query.column].value);
-            }
-            else if (cachedQuery.query.query.equals("bestPolicy")) {
-                //Compute policy from value using 1 step of minimax
-                System.out.println("\nBOARD AT STEP " + cachedQuery.query.steps  + "\n------------------------------\n");
-                printTable(cachedQuery.mdpgrid);
-                System.out.println("\n"+ cachedQuery.query + " : " + computeActionFromValues(new int[]{cachedQuery.query.row,cachedQuery.query.column}, cachedQuery.mdpgrid).action);
-            }
-
-        }else{
-            if (cachedQuery.query.query.equals("bestQValue")) {
-                System.out.println("\nBOARD AT STEP " + cachedQuery.query.steps  + "\n------------------------------\n");
-                printTableWide(cachedQuery.qgrid);
-                System.out.println(cachedQuery.query + " : " + cachedQuery.qgrid[cachedQuery.query.row][cachedQuery.query.column].value());
-            }
-            else if (cachedQuery.query.query.equals("bestPolicy")) {
-                System.out.println("\nBOARD AT STEP " + cachedQuery.query.steps  + "\n------------------------------\n");
-                printTableWide(cachedQuery.qgrid);
-                System.out.println(cachedQuery.query + " : " +cachedQuery.qgrid[cachedQuery.query.row][cachedQuery.query.column].getAction());
-            }
-
-        }
-    }
-
 }
 
 //A class representing a Q-tile
 class QTile{
 
-    static Random random = new Random();
-
     double north;
     double south;
     double west;
@@ -886,48 +1258,38 @@ class QTile{
     }
 
     //get the best action for this tile
-    //randomly break ties
+    //randomly break ties between north, west, east and south in that order
     public Direction getAction(){
-        var actionList = new LinkedList<Direction>();
+        var val = value(north, west, east, south);
 
-        actionList.add(Direction.NORTH);
-        var val = north;
+        var ties = 0;
+        if(north == val) ties++;
+        if(west == val) ties++;
+        if(east == val) ties++;
+        if(south == val) ties++;
 
-        if(west == val)
-            actionList.add(Direction.WEST);
-        else if(west > val){
-            actionList = new LinkedList<Direction>();
-            actionList.add(Direction.WEST);
-            val = west;
-        }
-
-        if(east == val)
-            actionList.add(Direction.EAST);
-        else if(east > val){
-            actionList = new LinkedList<Direction>();
-            actionList.add(Direction.EAST);
-            val = east;
-        }
+        var index = A3.random.nextInt(ties);
 
-        if(south == val)
-            actionList.add(Direction.SOUTH);
-        else if(south > val){
-            actionList = new LinkedList<Direction>();
-            actionList.add(Direction.SOUTH);
-            val = south;
-        }
-
-        var index = random.nextInt(actionList.size());
+        if(north == val && index-- == 0)
+            return Direction.NORTH;
+        if(west == val && index-- == 0)
+            return Direction.WEST;
+        if(east == val && index-- == 0)
+            return Direction.EAST;
+        return Direction.SOUTH;
+    }
 
-        return actionList.get(index);
+    //the largest of four action values
+    private static double value(double north, double west, double east, double south){
+        return Math.max(Math.max(north, west), Math.max(east, south));
     }
 
     //return a string representation of this tile
     public String toString(){
-        var n = String.format("%.2f",north);
-        var e = String.format("%.2f",east);
-        var w = String.format("%.2f",west);
-        var s = String.format("%.2f",south);
+        var n = ResultWriter.fixed(north, 2);
+        var e = ResultWriter.fixed(east, 2);
+        var w = ResultWriter.fixed(west, 2);
+        var s = ResultWriter.fixed(south, 2);
 
         var str = "| N: " + n + " E: " + e + " S: " + s + " W: " + w + " |";
 
@@ -962,7 +1324,7 @@ class MDPTile{
 
     //return a string representation of this state
     public String toString(){
-        String str = String.format("%.2f",value);
+        String str = ResultWriter.fixed(value, 2);
 
 
         if(isBoulder)
@@ -975,107 +1337,6 @@ class MDPTile{
 
 }
 
-// a class representing the problem
-// holds all the information from the configuration
-class Problem {
-
-    public int horizontal;
-    public int vertical;
-    public LinkedList<int[]> terminalStates;
-    public LinkedList<int[]> boulderStates;
-    public int[] startState;
-    public int k;
-    public int episodes;
-    public double discount;
-    public double alpha;
-    public double noise;
-    public double transitionCost;
-
-    public Problem(
-            int horizontal,
-            int vertical,
-            LinkedList<int[]> terminalStates,
-            LinkedList<int[]> boulderStates,
-            int[] startState,
-            int k,
-            int episodes,
-            double discount,
-            double alpha,
-            double noise,
-            double transitionCost){
-
-        this.horizontal = horizontal;
-        this.vertical = vertical;
-        this.terminalStates = terminalStates;
-        this.boulderStates = boulderStates;
-        this.startState = startState;
-        this.k = k;
-        this.episodes = episodes;
-        this.discount = discount;
-        this.alpha = alpha;
-        this.noise = noise;
-        this.transitionCost = transitionCost;
-    }
-
-    //a string representation of the problem
-    public String toString(){
-        return "Horizontal: "+ horizontal + "\n"+"Vertical: "+ + vertical + "\n" + "Terminal states: "+ listToString(terminalStates) + "\n" + "Boulder states: " + listToString(boulderStates) + "\n" + "Start state: " + "[" + startState[0] + " " + startState[1] + "]\n" + "k: " +  k + "\n" + "episodes: " + episodes + "\n" + "discount: " + discount + "\n" + "alpha: "+  alpha + "\n" + "noise: " +  noise + "\n" + "transition cost: " + transitionCost;
-    }
-
-    //write list as string
-    private String listToString(LinkedList<int[]> list){
-        String result = "[";
-        for(int[] arr : list){
-            result += "[";
-            for(int i = 0; i < arr.length; i++)
-                result += arr[i] + ",";
-            result += "]";
-        }
-        result += "]";
-        return result;
-    }
-
-}
-
-//a class representing a query to answer about the grid
-class Query {
-
-    public int column; //h - horizontal
-    public int row; //v - vertical
-    public int steps;
-    public String method;
-    public String query;
-    public int vertical;
-    public Query(int column, int row, int steps, String method, String query, int vertical){
-        this.column = column;
-        this.row = row;
-        this.steps = steps;
-        this.method = method;
-        this.query = query;
-        this.vertical = vertical;
-    }
-
-    //string representation of the query
-    public String toString(){
-        return "\n The query is:  " +  column + ", " + (vertical - (row + 1)) + ", " + steps + ", " + method + ", " + query;
-    }
-
-}
-
-//a query that has been cached with a board state
-// allows for easy answering of queries at the end of runtime
-class cachedQuery {
-    public QTile[][] qgrid;
-    public MDPTile[][] mdpgrid;
-    public Query query;
-
-    public cachedQuery(Query q, MDPTile[][] mdpgrid, QTile[][] qgrid){
-        this.qgrid = qgrid;
-        this.mdpgrid = mdpgrid;
-        query = q;
-    }
-}
-
 // an action and value tuple
 class tuple{
     Direction action;
@@ -1091,11 +1352,3 @@ class tuple{
         return "Direction : " + action + "  value: " + value;
     }
 }
-
-//Enum of all possible actions
-enum Direction {
-    NORTH,
-    EAST,
-    WEST,
-    SOUTH
-}
@@ -0,0 +1,57 @@
+/**
+ * Bellman backup kernels
+ * **/
+
+//A kernel that backs up a range of states from one value buffer into another
+interface BackupKernel {
+
+    /**
+     * Back up the states in [from, to) from the current values into the next values,
+     * terminal and boulder states are left untouched.
+     * input:
+     * the current value table
+     * the value table being written
+     * the range of states
+     * output: the largest change of a state value in the range
+     * **/
+    double sweep(ValueTable values, ValueTable next, int from, int to);
+
+    /**
+     * Create the fastest kernel available for a model and the kind of its value tables.
+     * The SIMD kernel needs heap tables and the jdk.incubator.vector module at compile and run time,
+     * otherwise the scalar kernel is used.
+     * **/
+    static BackupKernel create(TransitionModel model, ValueTable values){
+        if(values.array() == null)
+            return new ScalarBackupKernel(model);
+        try {
+            var kernel = Class.forName("VectorBackupKernel");
+            return (BackupKernel) kernel.getConstructor(TransitionModel.class).newInstance(model);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarBackupKernel(model);
+        }
+    }
+}
+
+//Backs up one state at a time straight from the transition model
+class ScalarBackupKernel implements BackupKernel {
+
+    private final TransitionModel model;
+
+    public ScalarBackupKernel(TransitionModel model){
+        this.model = model;
+    }
+
+    @Override
+    public double sweep(ValueTable values, ValueTable next, int from, int to){
+        double residual = 0;
+
+        for(int s = from; s < to; s++)
+            if(!model.isFixed(s)){
+                var value = model.bestValue(values, s);
+                next.set(s, value);
+                residual = Math.max(residual, Math.abs(value - values.get(s)));
+            }
+        return residual;
+    }
+}
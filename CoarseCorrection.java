@@ -0,0 +1,284 @@
+/**
+ * Coarse-grid correction of a value table
+ * **/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Removes the part of the error of a value table that value iteration is slow to remove.
+//A sweep shrinks an error by the discount and carries it one cell towards the terminals,
+//so an error spread over a region takes about as many sweeps as the region is wide.
+//The greedy policy's values v' solve v' = r + discount*P v', so the error e = v' - v of the
+//current values solves e = (Tv - v) + discount*P e, with Tv - v the Bellman residual.
+//Taking the error to be constant over FACTOR x FACTOR blocks of cells gives a system with one
+//unknown per block, whose coefficients are the policy's discounted moves between neighbouring
+//blocks averaged over the open cells of a block. Blocks are merged again, level after level,
+//until a side would be shorter than COARSEST_SIDE, and the system is solved with V-cycles over
+//those levels: Gauss-Seidel sweeps on every level, the residual of a level averaged into the level
+//below, and the error of a block of the level below added to the blocks it holds.
+//The error of every block is then added to its open cells. Terminals and boulders never change,
+//so the system has no unknown for them. Neither do the cells of a region walled off from every
+//terminal: no move of the rest of the grid enters it, so an error of the block it shares would
+//only be added to values that are already right, and sweeps would then remove it one discount
+//at a time.
+//The correction is as good as the greedy policy, once the policy is right it removes most of the
+//error at the cost of a few sweeps. Without discounting the system can be singular, so a correction
+//whose solve does not settle is dropped.
+class CoarseCorrection {
+
+    static final int FACTOR = 2;
+
+    //levels are coarsened until a side would be shorter than this
+    static final int COARSEST_SIDE = 16;
+
+    //V-cycles of a solve, the value iteration sweeps that follow remove what they leave
+    static final int CYCLES = 2;
+
+    //Gauss-Seidel sweeps before and after the correction of a level, and on the coarsest level
+    static final int LEVEL_SWEEPS = 2;
+    static final int COARSEST_SWEEPS = 40;
+
+    final TransitionModel model;
+
+    //the states that can reach a terminal, the only ones corrected
+    private final boolean[] reaches;
+
+    //levels from the blocks of the grid to the coarsest one
+    final List<Level> levels = new ArrayList<>();
+
+    //corrections applied and dropped, and their backups: finding the greedy policy and its
+    //residual counts as two backups per open cell, a block update as one
+    int applied = 0;
+    int dropped = 0;
+    long backups = 0;
+
+    private final int[] next = new int[TransitionModel.OUTCOMES];
+    private final double[] probability = new double[TransitionModel.OUTCOMES];
+
+    //input: the model, the states that can reach a terminal
+    public CoarseCorrection(TransitionModel model, boolean[] reaches){
+        this.model = model;
+        this.reaches = reaches;
+
+        int rows = model.rows;
+        int cols = model.cols;
+        do {
+            rows = (rows + FACTOR - 1) / FACTOR;
+            cols = (cols + FACTOR - 1) / FACTOR;
+            levels.add(new Level(rows, cols));
+        } while(Math.min(rows, cols) / FACTOR >= COARSEST_SIDE);
+    }
+
+    //the unknowns of one level of blocks, with the discounted moves of the policy from
+    //a block to itself and to its four neighbours
+    static class Level {
+        static final int SELF = 0, UP = 1, DOWN = 2, LEFT = 3, RIGHT = 4, SLOTS = 5;
+
+        final int rows;
+        final int cols;
+
+        //open cells of the grid in each block, a block without any has no unknown
+        final double[] weight;
+        //indexed block*SLOTS + slot
+        final double[] move;
+        final double[] rhs;
+        final double[] error;
+        final double[] residual;
+
+        Level(int rows, int cols){
+            this.rows = rows;
+            this.cols = cols;
+            weight = new double[rows * cols];
+            move = new double[rows * cols * SLOTS];
+            rhs = new double[rows * cols];
+            error = new double[rows * cols];
+            residual = new double[rows * cols];
+        }
+
+        //the slot of a move from a block to itself or a neighbour
+        int slot(int from, int to){
+            var difference = to - from;
+            if(difference == 0)
+                return SELF;
+            if(difference == -cols)
+                return UP;
+            if(difference == cols)
+                return DOWN;
+            return difference < 0 ? LEFT : RIGHT;
+        }
+
+        //the block a slot of a block moves to
+        int neighbour(int block, int slot){
+            switch(slot){
+                case UP: return block - cols;
+                case DOWN: return block + cols;
+                case LEFT: return block - 1;
+                case RIGHT: return block + 1;
+                default: return block;
+            }
+        }
+
+        //the block of the level below holding a block of this one
+        int parent(int block, Level below){
+            return (block / cols / FACTOR) * below.cols + (block % cols) / FACTOR;
+        }
+
+        void clear(){
+            Arrays.fill(weight, 0);
+            Arrays.fill(move, 0);
+            Arrays.fill(rhs, 0);
+            Arrays.fill(error, 0);
+        }
+
+        //turn the sums of the moves, and of the right-hand side when asked, into averages over the open cells
+        void average(boolean averageRhs){
+            for(int b = 0; b < weight.length; b++)
+                if(weight[b] > 0){
+                    if(averageRhs)
+                        rhs[b] /= weight[b];
+                    for(int slot = 0; slot < SLOTS; slot++)
+                        move[b*SLOTS + slot] /= weight[b];
+                }
+        }
+
+        //one Gauss-Seidel sweep of error = rhs + move*error
+        void smooth(){
+            for(int b = 0; b < weight.length; b++){
+                var stay = 1 - move[b*SLOTS + SELF];
+                if(weight[b] == 0 || stay <= 0)
+                    continue;
+
+                var sum = rhs[b];
+                for(int slot = UP; slot < SLOTS; slot++)
+                    if(move[b*SLOTS + slot] != 0)
+                        sum += move[b*SLOTS + slot] * error[neighbour(b, slot)];
+                error[b] = sum / stay;
+            }
+        }
+
+        //residual = rhs + move*error - error, returns its largest magnitude
+        double residual(){
+            double largest = 0;
+            for(int b = 0; b < weight.length; b++){
+                residual[b] = 0;
+                if(weight[b] == 0)
+                    continue;
+
+                var sum = rhs[b] - error[b];
+                for(int slot = SELF; slot < SLOTS; slot++)
+                    if(move[b*SLOTS + slot] != 0)
+                        sum += move[b*SLOTS + slot] * error[neighbour(b, slot)];
+                residual[b] = sum;
+                largest = Math.max(largest, Math.abs(sum));
+            }
+            return largest;
+        }
+    }
+
+    /**
+     * Add the error of the greedy policy's values, solved on the block levels, to the open cells of a table
+     * input: the value table of the grid, updated in place
+     * output: whether the correction was applied, false when its solve did not settle
+     * **/
+    public boolean correct(ValueTable values){
+        var blocks = levels.get(0);
+        for(var level : levels)
+            level.clear();
+
+        //the residual and the moves of the greedy policy, summed over the open cells of every block
+        //every successor of a state that reaches a terminal reaches one as well
+        for(int s = 0; s < model.states; s++){
+            if(model.isFixed(s) || !reaches[s])
+                continue;
+
+            var action = model.bestAction(values, s);
+            var block = block(s, blocks);
+            blocks.weight[block]++;
+            blocks.rhs[block] += model.actionValue(values, s, action) - values.get(s);
+
+            model.outcomes(s, action, next, probability);
+            for(int o = 0; o < TransitionModel.OUTCOMES; o++)
+                if(probability[o] != 0 && !model.isFixed(next[o]))
+                    blocks.move[block*Level.SLOTS + blocks.slot(block, block(next[o], blocks))] += model.discount * probability[o];
+            backups += 2;
+        }
+
+        blocks.average(true);
+        for(int l = 1; l < levels.size(); l++)
+            merge(levels.get(l - 1), levels.get(l));
+
+        var start = blocks.residual();
+        for(int cycle = 0; cycle < CYCLES; cycle++)
+            cycle(0);
+        var last = blocks.residual();
+        if(!(last <= start)){
+            dropped++;
+            return false;
+        }
+
+        for(int s = 0; s < model.states; s++)
+            if(!model.isFixed(s) && reaches[s])
+                values.set(s, values.get(s) + blocks.error[block(s, blocks)]);
+        applied++;
+        return true;
+    }
+
+    //the block of the grid holding a state
+    private int block(int state, Level blocks){
+        return (state / model.cols / FACTOR) * blocks.cols + (state % model.cols) / FACTOR;
+    }
+
+    //build the moves of a level from the one above it, averaged over the open cells of its blocks
+    private static void merge(Level above, Level below){
+        for(int b = 0; b < above.weight.length; b++){
+            if(above.weight[b] == 0)
+                continue;
+
+            var parent = above.parent(b, below);
+            below.weight[parent] += above.weight[b];
+            for(int slot = 0; slot < Level.SLOTS; slot++){
+                var move = above.move[b*Level.SLOTS + slot];
+                if(move != 0)
+                    below.move[parent*Level.SLOTS + below.slot(parent, above.parent(above.neighbour(b, slot), below))]
+                            += above.weight[b] * move;
+            }
+        }
+        below.average(false);
+    }
+
+    //one V-cycle of a level's system from its current error
+    private void cycle(int index){
+        var level = levels.get(index);
+        if(index == levels.size() - 1){
+            for(int i = 0; i < COARSEST_SWEEPS; i++)
+                level.smooth();
+            backups += (long) COARSEST_SWEEPS * level.weight.length;
+            return;
+        }
+
+        for(int i = 0; i < LEVEL_SWEEPS; i++)
+            level.smooth();
+        level.residual();
+
+        //the right-hand side of the level below is the average residual of its blocks
+        var below = levels.get(index + 1);
+        Arrays.fill(below.rhs, 0);
+        Arrays.fill(below.error, 0);
+        for(int b = 0; b < level.weight.length; b++)
+            if(level.weight[b] > 0)
+                below.rhs[level.parent(b, below)] += level.weight[b] * level.residual[b];
+        for(int b = 0; b < below.weight.length; b++)
+            if(below.weight[b] > 0)
+                below.rhs[b] /= below.weight[b];
+
+        cycle(index + 1);
+
+        for(int b = 0; b < level.weight.length; b++)
+            if(level.weight[b] > 0)
+                level.error[b] += below.error[level.parent(b, below)];
+        for(int i = 0; i < LEVEL_SWEEPS; i++)
+            level.smooth();
+        backups += (long) (2*LEVEL_SWEEPS + 1) * level.weight.length;
+    }
+}
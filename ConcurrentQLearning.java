@@ -0,0 +1,143 @@
+/**
+ * Concurrent Q-learning on a shared Q-table
+ * **/
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Several actors run episodes at the same time against one shared Q-table without locks.
+//In HOGWILD mode updates are plain racy writes, so concurrent updates of the same slot can be lost.
+//In CAS mode every update is a compare-and-set retried until it applies on the latest value.
+//Episodes are counted globally: an actor claims an episode before running it and the episode
+//index handed to the listener is the order in which episodes finished.
+class ConcurrentQLearning {
+
+    //called after every finished episode with its global index
+    interface EpisodeListener {
+        void episodeDone(int episode, QTable table);
+    }
+
+    final TransitionModel model;
+    final Problem problem;
+    final QTable table;
+
+    //every actor measures its episodes into this when set
+    MetricsRecorder metrics = null;
+
+    private final AtomicInteger claimed = new AtomicInteger();
+    private final AtomicInteger finished = new AtomicInteger();
+    private final AtomicLong steps = new AtomicLong();
+
+    //an off-heap table is allocated in the given arena
+    public ConcurrentQLearning(TransitionModel model, Problem problem, OffHeapArena arena){
+        this.model = model;
+        this.problem = problem;
+        table = QTable.create(model, problem.qTable, arena);
+    }
+
+    /**
+     * Run the configured number of episodes split over several actors
+     * input:
+     * the number of actors
+     * whether updates use compare-and-set
+     * the RNG every actor stream is split from
+     * a listener for finished episodes, called in episode order one at a time
+     * **/
+    public void run(int actors, boolean atomicUpdates, Rng seeds, EpisodeListener listener) throws InterruptedException {
+        var workers = new Thread[actors];
+
+        for(int i = 0; i < actors; i++){
+            var learner = new QLearning(model, problem, table, seeds.split());
+            learner.atomicUpdates = atomicUpdates;
+            learner.metrics = metrics;
+
+            workers[i] = new Thread(() -> {
+                long actorSteps = 0;
+                //batches of an actor are numbered by the global index of their first finished episode
+                SolverEvents.EpisodeBatchEvent batch = null;
+                int batchEpisodes = 0, batchFirst = -1;
+                long batchSteps = 0;
+
+                while(claimed.getAndIncrement() < problem.episodes){
+                    if(batchEpisodes == 0){
+                        batch = SolverEvents.beginEpisodeBatch();
+                        batchSteps = 0;
+                        batchFirst = -1;
+                    }
+
+                    var episodeSteps = learner.runEpisode();
+                    actorSteps += episodeSteps;
+                    batchSteps += episodeSteps;
+
+                    //number the episode and notify under one lock so the listener sees episodes in order
+                    int episode;
+                    if(listener != null || metrics != null)
+                        synchronized (this){
+                            episode = finished.getAndIncrement();
+                            if(metrics != null)
+                                learner.recordEpisode(episode, episodeSteps);
+                            if(listener != null)
+                                listener.episodeDone(episode, table);
+                        }
+                    else
+                        episode = finished.getAndIncrement();
+
+                    if(batchFirst < 0)
+                        batchFirst = episode;
+
+                    if(++batchEpisodes == A3.EPISODE_BATCH){
+                        if(batch != null)
+                            batch.finish(batchFirst, batchEpisodes, batchSteps);
+                        batchEpisodes = 0;
+                    }
+                }
+                if(batch != null && batchEpisodes > 0)
+                    batch.finish(batchFirst, batchEpisodes, batchSteps);
+                steps.addAndGet(actorSteps);
+            }, "q-learning-actor-" + i);
+            workers[i].start();
+        }
+
+        for(var worker : workers)
+            worker.join();
+    }
+
+    //the number of environment steps taken by every actor
+    public long steps(){
+        return steps.get();
+    }
+
+    /**
+     * Print the environment steps per second of both update modes against the number of actors
+     * input:
+     * args[0]: the problem configuration
+     * args[1]: the largest number of actors to try, defaults to the number of cores
+     * **/
+    public static void main(String[] args) throws InterruptedException {
+        var problem = A3.getGridProblem(args[0]);
+        var model = new TransitionModel(problem);
+        var maxActors = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.println("grid: " + model.rows + "x" + model.cols + ", episodes: " + problem.episodes);
+        System.out.format("%10s%10s%15s%15s%n", "mode", "actors", "time (ms)", "steps/s");
+
+        var arena = A3.openArena(problem);
+        try {
+            //warm up before timing
+            new ConcurrentQLearning(model, problem, arena).run(1, true, Rng.create(problem.rng, problem.seed), null);
+
+            for(var mode : new QLearningMode[]{QLearningMode.HOGWILD, QLearningMode.CAS})
+                for(int actors = 1; actors <= maxActors; actors = actors < maxActors ? Math.min(actors*2, maxActors) : actors+1){
+                    var learner = new ConcurrentQLearning(model, problem, arena);
+
+                    var start = System.nanoTime();
+                    learner.run(actors, mode == QLearningMode.CAS, Rng.create(problem.rng, problem.seed), null);
+                    var millis = (System.nanoTime() - start) / 1e6;
+
+                    System.out.format("%10s%10d%15.1f%15.0f%n", mode, actors, millis, learner.steps() / (millis / 1000));
+                }
+        } finally {
+            arena.close();
+        }
+    }
+}
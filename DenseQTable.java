@@ -0,0 +1,57 @@
+/**
+ * Q-table in one array
+ * **/
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+//A Q-table stored as one contiguous array holding the four action values of every state,
+//the value of action a in state s is at index s*ACTIONS + a
+class DenseQTable extends QTable {
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(double[].class);
+
+    final double[] q;
+
+    public DenseQTable(TransitionModel model){
+        super(model);
+        q = new double[model.states * TransitionModel.ACTIONS];
+    }
+
+    @Override
+    public double get(int state, int action){
+        return q[state*TransitionModel.ACTIONS + action];
+    }
+
+    @Override
+    public void set(int state, int action, double value){
+        q[state*TransitionModel.ACTIONS + action] = value;
+    }
+
+    @Override
+    public void updateAtomically(int state, int action, double alpha, double sample){
+        int slot = state*TransitionModel.ACTIONS + action;
+        double current;
+        do {
+            current = (double) SLOT.getVolatile(q, slot);
+        } while(!SLOT.compareAndSet(q, slot, current, (1-alpha)*current + alpha*sample));
+    }
+
+    @Override
+    public QTable cpy(){
+        var copy = new DenseQTable(model);
+        System.arraycopy(q, 0, copy.q, 0, q.length);
+        return copy;
+    }
+
+    //the table's own array, not a copy
+    @Override
+    public double[] toArray(){
+        return q;
+    }
+
+    @Override
+    public void load(double[] values){
+        System.arraycopy(values, 0, q, 0, q.length);
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * Actions of the grid
+ * **/
+
+//Enum of all possible actions
+enum Direction {
+    NORTH,
+    EAST,
+    WEST,
+    SOUTH
+}
@@ -0,0 +1,220 @@
+/**
+ * Binary grid map format
+ * **/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+
+//A grid map stored as planes of a memory-mapped file, so maps with millions of
+//boulders and terminals are loaded without parsing or building coordinate lists.
+//Cells are numbered row*cols+col in the flipped orientation of the transition model.
+//
+//layout, little endian:
+//  header     magic, version, rows, cols, start row, start col, k, episodes (ints)
+//             discount, alpha, noise, transition cost (doubles)
+//  cell plane one byte per cell, OPEN, BOULDER or TERMINAL, padded to a multiple of 8
+//  reward plane one double per cell, the value of a terminal or the reward of entering any other cell
+//
+//Entering a terminal costs the header transition cost, like it does in the text configuration.
+class GridMap {
+
+    static final int MAGIC = 0x50414d47; //"GMAP"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+
+    static final byte OPEN = 0;
+    static final byte BOULDER = 1;
+    static final byte TERMINAL = 2;
+
+    //planes are mapped in windows of this size, a multiple of 8 so no double straddles two windows
+    private static final long WINDOW = 1L << 30;
+
+    final Path path;
+    final int rows;
+    final int cols;
+    final long cells;
+    final int startRow;
+    final int startCol;
+    final int k;
+    final int episodes;
+    final double discount;
+    final double alpha;
+    final double noise;
+    final double transitionCost;
+
+    private final MappedByteBuffer[] cellPlane;
+    private final MappedByteBuffer[] rewardPlane;
+
+    private GridMap(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+
+        var header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if(header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+            throw new IOException(path + " is not a version " + VERSION + " grid map");
+
+        rows = header.getInt(8);
+        cols = header.getInt(12);
+        cells = (long)rows * cols;
+        startRow = header.getInt(16);
+        startCol = header.getInt(20);
+        k = header.getInt(24);
+        episodes = header.getInt(28);
+        discount = header.getDouble(32);
+        alpha = header.getDouble(40);
+        noise = header.getDouble(48);
+        transitionCost = header.getDouble(56);
+
+        long rewardOffset = HEADER_SIZE + cellPlaneSize(cells);
+        if(channel.size() < rewardOffset + cells*Double.BYTES)
+            throw new IOException(path + " is truncated");
+
+        cellPlane = mapPlane(channel, FileChannel.MapMode.READ_ONLY, HEADER_SIZE, cells);
+        rewardPlane = mapPlane(channel, FileChannel.MapMode.READ_ONLY, rewardOffset, cells*Double.BYTES);
+    }
+
+    /**
+     * Map a grid map file, the mappings stay valid after the file is closed
+     * input: path of the map
+     * output: the mapped grid
+     * **/
+    static GridMap open(Path path){
+        try(var channel = FileChannel.open(path, StandardOpenOption.READ)){
+            return new GridMap(path, channel);
+        } catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //check if a file starts with the grid map magic number
+    static boolean isGridMap(Path path){
+        try(var channel = FileChannel.open(path, StandardOpenOption.READ)){
+            var magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            return channel.read(magic, 0) == Integer.BYTES && magic.getInt(0) == MAGIC;
+        } catch (IOException e){
+            return false;
+        }
+    }
+
+    private static long cellPlaneSize(long cells){
+        return (cells + 7) & ~7L;
+    }
+
+    private static MappedByteBuffer[] mapPlane(FileChannel channel, FileChannel.MapMode mode, long offset, long size) throws IOException {
+        var windows = new MappedByteBuffer[(int)((size + WINDOW - 1) / WINDOW)];
+        for(int w = 0; w < windows.length; w++){
+            long start = w*WINDOW;
+            windows[w] = channel.map(mode, offset + start, Math.min(WINDOW, size - start));
+            windows[w].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return windows;
+    }
+
+    //type of a cell, OPEN, BOULDER or TERMINAL
+    byte cellType(long cell){
+        return cellPlane[(int)(cell / WINDOW)].get((int)(cell % WINDOW));
+    }
+
+    //the value of a terminal cell or the reward of entering any other cell
+    double reward(long cell){
+        long position = cell*Double.BYTES;
+        return rewardPlane[(int)(position / WINDOW)].getDouble((int)(position % WINDOW));
+    }
+
+    /**
+     * Build the problem of a map, the coordinate lists stay empty and the model reads the planes
+     * output: the problem
+     * **/
+    Problem toProblem(){
+        var problem = new Problem(
+                cols,
+                rows,
+                new LinkedList<int[]>(),
+                new LinkedList<int[]>(),
+                new int[]{startRow, startCol},
+                k,
+                episodes,
+                discount,
+                alpha,
+                noise,
+                transitionCost);
+        problem.seed = System.nanoTime();
+        problem.map = this;
+        return problem;
+    }
+
+    /**
+     * Write the map of a problem, the planes are filled from its compiled transition model
+     * input:
+     * the problem
+     * the transition model of the problem
+     * path of the map to write
+     * **/
+    static void write(Problem problem, TransitionModel model, Path path){
+        long cells = model.states;
+        long rewardOffset = HEADER_SIZE + cellPlaneSize(cells);
+        long size = rewardOffset + cells*Double.BYTES;
+
+        try(var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            var header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, model.rows);
+            header.putInt(12, model.cols);
+            header.putInt(16, problem.startState[0]);
+            header.putInt(20, problem.startState[1]);
+            header.putInt(24, problem.k);
+            header.putInt(28, problem.episodes);
+            header.putDouble(32, problem.discount);
+            header.putDouble(40, problem.alpha);
+            header.putDouble(48, problem.noise);
+            header.putDouble(56, problem.transitionCost);
+
+            var cellPlane = mapPlane(channel, FileChannel.MapMode.READ_WRITE, HEADER_SIZE, cells);
+            var rewardPlane = mapPlane(channel, FileChannel.MapMode.READ_WRITE, rewardOffset, cells*Double.BYTES);
+
+            for(int s = 0; s < model.states; s++){
+                byte type = model.isBoulder(s) ? BOULDER : model.isTerminal(s) ? TERMINAL : OPEN;
+                long position = (long)s*Double.BYTES;
+
+                cellPlane[(int)(s / WINDOW)].put((int)(s % WINDOW), type);
+                rewardPlane[(int)(position / WINDOW)].putDouble((int)(position % WINDOW),
+                        model.isTerminal(s) ? model.terminalValue(s) : model.reward(s));
+            }
+
+            header.force();
+            for(var window : cellPlane)
+                window.force();
+            for(var window : rewardPlane)
+                window.force();
+            channel.truncate(size);
+        } catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Convert a text configuration to a binary map
+     * input: text configuration, path of the map to write
+     * **/
+    public static void main(String[] args){
+        if(args.length < 2){
+            System.out.println("usage: GridMap <configuration> <map>");
+            return;
+        }
+
+        var problem = A3.getGridProblem(args[0]);
+        var model = new TransitionModel(problem);
+        write(problem, model, Path.of(args[1]));
+
+        System.out.println("wrote " + model.rows + "x" + model.cols + " map to " + args[1]);
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Reader of recorded table histories
+ * **/
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+//Reads a file written by HistoryRecorder and rebuilds the table at any step
+//from the closest keyframe at or before it plus the deltas after that keyframe.
+class HistoryReader implements AutoCloseable {
+
+    //the file is mapped in overlapping regions so no entry is split between two mappings
+    private static final long REGION_SIZE = 1L << 30;
+    private static final int REGION_OVERLAP = 64;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] regions;
+
+    final long tableSize;
+    final int keyframeInterval;
+    final int steps;
+
+    private final long[] stepOffsets;
+    private final int[] keyframeSteps;
+    private final long[] keyframeOffsets;
+
+    public HistoryReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        var size = channel.size();
+
+        regions = new MappedByteBuffer[(int) ((size + REGION_SIZE - 1) / REGION_SIZE)];
+        for(int i = 0; i < regions.length; i++){
+            var start = i * REGION_SIZE;
+            regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE + REGION_OVERLAP, size - start));
+        }
+
+        if(getInt(0) != HistoryRecorder.MAGIC || getInt(4) != HistoryRecorder.VERSION)
+            throw new IOException("Not a history file: " + file);
+        tableSize = getLong(8);
+        keyframeInterval = getInt(16);
+        steps = getInt(20);
+        var indexOffset = getLong(24);
+
+        stepOffsets = new long[steps];
+        for(int i = 0; i < steps; i++)
+            stepOffsets[i] = getLong(indexOffset + 8L*i);
+
+        var keyframeIndex = indexOffset + 8L*steps;
+        var keyframes = getInt(keyframeIndex);
+        keyframeSteps = new int[keyframes];
+        keyframeOffsets = new long[keyframes];
+        for(int i = 0; i < keyframes; i++){
+            keyframeSteps[i] = getInt(keyframeIndex + 4 + 12L*i);
+            keyframeOffsets[i] = getLong(keyframeIndex + 8 + 12L*i);
+        }
+    }
+
+    private int getInt(long position){
+        return regions[(int) (position / REGION_SIZE)].getInt((int) (position % REGION_SIZE));
+    }
+
+    private long getLong(long position){
+        return regions[(int) (position / REGION_SIZE)].getLong((int) (position % REGION_SIZE));
+    }
+
+    private double getDouble(long position){
+        return regions[(int) (position / REGION_SIZE)].getDouble((int) (position % REGION_SIZE));
+    }
+
+    //the index of the last keyframe at or before a step
+    private int keyframeFor(int step){
+        if(step < 0 || step >= steps)
+            throw new IllegalArgumentException("Step " + step + " is not in the history, it has " + steps + " steps");
+        var i = Arrays.binarySearch(keyframeSteps, step);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    //apply the entries of a record to a table
+    private void apply(long position, double[] table){
+        for(int slot = getInt(position); slot != HistoryRecorder.END_OF_RECORD; slot = getInt(position)){
+            table[slot] = getDouble(position + 4);
+            position += HistoryRecorder.ENTRY_SIZE;
+        }
+    }
+
+    //the last value a record gives a slot, or the fallback when it does not write it
+    private double find(long position, int target, double fallback){
+        for(int slot = getInt(position); slot != HistoryRecorder.END_OF_RECORD; slot = getInt(position)){
+            if(slot == target)
+                fallback = getDouble(position + 4);
+            position += HistoryRecorder.ENTRY_SIZE;
+        }
+        return fallback;
+    }
+
+    /**
+     * Rebuild the whole table at the end of a step
+     * input: the step
+     * output: the table
+     * **/
+    public double[] tableAt(int step){
+        var keyframe = keyframeFor(step);
+        var table = new double[(int) tableSize];
+
+        apply(keyframeOffsets[keyframe], table);
+        for(int s = keyframeSteps[keyframe] + 1; s <= step; s++)
+            apply(stepOffsets[s], table);
+        return table;
+    }
+
+    /**
+     * Read a single slot of the table at the end of a step without rebuilding the table
+     * input: the step and the slot
+     * output: the value of the slot
+     * **/
+    public double valueAt(int step, int slot){
+        var keyframe = keyframeFor(step);
+
+        var value = find(keyframeOffsets[keyframe], slot, 0);
+        for(int s = keyframeSteps[keyframe] + 1; s <= step; s++)
+            value = find(stepOffsets[s], slot, value);
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Print recorded values
+     * input:
+     * args[0]: the history file
+     * args[1]: the step
+     * args[2...]: the slots to print, a state index for MDP histories
+     * and state*4 + Direction ordinal for Q-learning histories
+     * **/
+    public static void main(String[] args) throws IOException {
+        try(var reader = new HistoryReader(Path.of(args[0]))){
+            var step = Integer.parseInt(args[1]);
+            System.out.println("steps: " + reader.steps + ", keyframe interval: " + reader.keyframeInterval);
+            for(int i = 2; i < args.length; i++){
+                var slot = Integer.parseInt(args[i]);
+                System.out.println("step " + step + " slot " + slot + " : " + reader.valueAt(step, slot));
+            }
+        }
+    }
+}
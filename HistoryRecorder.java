@@ -0,0 +1,198 @@
+/**
+ * History of a value or Q-table over the steps of a run
+ * **/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+//Records a table after every step of a run into a memory-mapped file.
+//Every step gets a delta record of the slots written during it, and every keyframeInterval
+//steps a keyframe record of the whole table is added, so a reader rebuilds the table at any
+//step from the closest keyframe plus at most keyframeInterval deltas.
+//
+//File layout:
+//  header: magic, version, table size, keyframe interval, step count, index offset
+//  records: (int slot, double value) pairs ended by slot -1, keyframes list every nonzero slot
+//  index: the offset of the delta record of every step, then the keyframe steps and offsets
+//Errors while recording are thrown as UncheckedIOException so solvers can record from their inner loops.
+class HistoryRecorder implements AutoCloseable {
+
+    static final int MAGIC = 0x48495354; //"HIST"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 8;
+    static final int ENTRY_SIZE = 4 + 8;
+    static final int END_OF_RECORD = -1;
+
+    //the file is mapped in chunks of this size as it grows
+    private static final int CHUNK_SIZE = 64 << 20;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final long tableSize;
+    private final int keyframeInterval;
+
+    private MappedByteBuffer chunk;
+    private long chunkStart;
+
+    //offsets of the delta record of every step and of every keyframe
+    private long[] stepOffsets = new long[1024];
+    private int steps = 0;
+    private int[] keyframeSteps = new int[64];
+    private long[] keyframeOffsets = new long[64];
+    private int keyframes = 0;
+
+    private boolean inStep = false;
+
+    //last recorded table for recordTable, allocated on first use
+    private double[] shadow;
+
+    public HistoryRecorder(Path file, long tableSize, int keyframeInterval) throws IOException {
+        this.tableSize = tableSize;
+        this.keyframeInterval = keyframeInterval;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        map(HEADER_SIZE);
+    }
+
+    //map the next chunk of the file starting at an absolute position
+    private void map(long position){
+        try {
+            chunkStart = position;
+            chunk = channel.map(FileChannel.MapMode.READ_WRITE, position, CHUNK_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //the absolute position the next byte is written at
+    private long position(){
+        return chunkStart + chunk.position();
+    }
+
+    //make sure the current chunk has room for a number of bytes
+    private void ensure(int bytes){
+        if(chunk.remaining() < bytes)
+            map(position());
+    }
+
+    private void beginStep(){
+        if(inStep)
+            return;
+        if(steps == stepOffsets.length)
+            stepOffsets = Arrays.copyOf(stepOffsets, steps * 2);
+        stepOffsets[steps] = position();
+        inStep = true;
+    }
+
+    /**
+     * Record a write of a slot during the current step
+     * input: the slot and its new value
+     * **/
+    public void record(int slot, double value){
+        beginStep();
+        ensure(ENTRY_SIZE);
+        chunk.putInt(slot);
+        chunk.putDouble(value);
+    }
+
+    /**
+     * Record every slot of a table that changed since the last call
+     * input: the table at the end of the current step
+     * **/
+    public void recordTable(double[] table){
+        if(shadow == null)
+            shadow = new double[table.length];
+
+        for(int slot = 0; slot < table.length; slot++)
+            if(Double.doubleToRawLongBits(table[slot]) != Double.doubleToRawLongBits(shadow[slot])){
+                record(slot, table[slot]);
+                shadow[slot] = table[slot];
+            }
+    }
+
+    /**
+     * Finish the current step, writing a keyframe when one is due
+     * input: the table at the end of the step
+     * **/
+    public void endStep(double[] table){
+        endStep(() -> table);
+    }
+
+    //finish a step like endStep(double[]), asking for the table only when a keyframe is due
+    public void endStep(Supplier<double[]> tableAtKeyframe){
+        beginStep();
+        endRecord();
+
+        if(steps % keyframeInterval == 0){
+            var event = SolverEvents.beginSnapshotCapture();
+            if(keyframes == keyframeSteps.length){
+                keyframeSteps = Arrays.copyOf(keyframeSteps, keyframes * 2);
+                keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframes * 2);
+            }
+            keyframeSteps[keyframes] = steps;
+            keyframeOffsets[keyframes++] = position();
+
+            var table = tableAtKeyframe.get();
+            for(int slot = 0; slot < table.length; slot++)
+                if(table[slot] != 0){
+                    ensure(ENTRY_SIZE);
+                    chunk.putInt(slot);
+                    chunk.putDouble(table[slot]);
+                }
+            endRecord();
+            if(event != null)
+                event.finish("history keyframe", steps, tableSize, position() - keyframeOffsets[keyframes-1]);
+        }
+
+        steps++;
+        inStep = false;
+    }
+
+    private void endRecord(){
+        ensure(4);
+        chunk.putInt(END_OF_RECORD);
+    }
+
+    //the number of finished steps
+    public int steps(){
+        return steps;
+    }
+
+    //write the index and header and cut the file to its length
+    @Override
+    public void close() throws IOException {
+        long indexOffset = position();
+
+        for(int i = 0; i < steps; i++){
+            ensure(8);
+            chunk.putLong(stepOffsets[i]);
+        }
+        ensure(4);
+        chunk.putInt(keyframes);
+        for(int i = 0; i < keyframes; i++){
+            ensure(12);
+            chunk.putInt(keyframeSteps[i]);
+            chunk.putLong(keyframeOffsets[i]);
+        }
+        long end = position();
+
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(tableSize);
+        header.putInt(keyframeInterval);
+        header.putInt(steps);
+        header.putLong(indexOffset);
+
+        chunk.force();
+        header.force();
+        channel.truncate(end);
+        channel.close();
+    }
+}
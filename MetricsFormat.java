@@ -0,0 +1,9 @@
+/**
+ * Metrics file formats
+ * **/
+
+//Enum of the file formats of recorded metrics
+enum MetricsFormat {
+    CSV,  //a header line, then one comma separated row per line
+    JSONL //one JSON object per line
+}
@@ -0,0 +1,175 @@
+/**
+ * Per-step metrics of a run
+ * **/
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+//Records one row of COLUMNS numbers per step of a run, e.g. per sweep or per episode,
+//and writes the rows to a CSV or JSONL file from a background thread.
+//Rows go into a ring of CAPACITY rows preallocated as one double array, so recording a row
+//allocates nothing and costs a short lock; the writer drains the ring every FLUSH_MILLIS or
+//once it is half full. A producer that finds the ring full waits for the writer.
+//Solvers hold a null recorder when metrics are off, so a disabled recorder costs a null check.
+class MetricsRecorder implements AutoCloseable {
+
+    static final int COLUMNS = 5;
+    static final int CAPACITY = 4096;
+    static final long FLUSH_MILLIS = 200;
+
+    //columns of the MDP sweeps and Q-learning episodes
+    static final String[] SWEEP_COLUMNS = {"iteration", "residual", "wall_ms", "backups", "backups_per_s"};
+    static final String[] EPISODE_COLUMNS = {"episode", "length", "return", "mean_abs_td_error", "steps_per_s"};
+
+    private final String[] columns;
+    private final MetricsFormat format;
+    private final BufferedWriter out;
+    private final Thread writer;
+
+    private final double[] ring = new double[CAPACITY * COLUMNS];
+    //rows recorded and rows taken by the writer, the ring holds rows [taken, recorded)
+    private long recorded = 0;
+    private long taken = 0;
+    private boolean closed = false;
+    private IOException failure = null;
+
+    public MetricsRecorder(Path file, MetricsFormat format, String[] columns) throws IOException {
+        this.columns = columns;
+        this.format = format;
+        out = Files.newBufferedWriter(file);
+        if(format == MetricsFormat.CSV){
+            out.write(String.join(",", columns));
+            out.newLine();
+        }
+
+        writer = new Thread(this::drain, "metrics-" + file.getFileName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Record a row, integral columns may be passed as doubles.
+     * A failed write of the writer thread is thrown here as an UncheckedIOException.
+     * input: the value of every column
+     * **/
+    public synchronized void record(double a, double b, double c, double d, double e){
+        while(recorded - taken == CAPACITY && failure == null)
+            waitForWriter();
+        if(failure != null)
+            throw new UncheckedIOException(failure);
+
+        int at = (int) (recorded % CAPACITY) * COLUMNS;
+        ring[at] = a;
+        ring[at + 1] = b;
+        ring[at + 2] = c;
+        ring[at + 3] = d;
+        ring[at + 4] = e;
+        recorded++;
+
+        if(recorded - taken == CAPACITY / 2)
+            notifyAll();
+    }
+
+    private void waitForWriter(){
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //the writer thread: copy the rows out of the ring under the lock, format them outside it
+    private void drain(){
+        var rows = new double[CAPACITY * COLUMNS];
+        var line = new StringBuilder();
+
+        while(true){
+            long first, count;
+            boolean last;
+            synchronized (this){
+                while(recorded == taken && !closed)
+                    try {
+                        wait(FLUSH_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                first = taken;
+                count = recorded - taken;
+                for(long row = first; row < first + count; row++)
+                    System.arraycopy(ring, (int) (row % CAPACITY) * COLUMNS, rows, (int) (row - first) * COLUMNS, COLUMNS);
+                taken = recorded;
+                last = closed;
+                notifyAll();
+            }
+
+            try {
+                for(int row = 0; row < count; row++){
+                    line.setLength(0);
+                    format(line, rows, row * COLUMNS);
+                    out.append(line);
+                    out.newLine();
+                }
+                out.flush();
+            } catch (IOException e) {
+                synchronized (this){
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+
+            if(last)
+                return;
+        }
+    }
+
+    private void format(StringBuilder line, double[] rows, int at){
+        if(format == MetricsFormat.JSONL)
+            line.append('{');
+        for(int c = 0; c < COLUMNS; c++){
+            if(c > 0)
+                line.append(',');
+            if(format == MetricsFormat.JSONL)
+                line.append('"').append(columns[c]).append("\":");
+
+            var value = rows[at + c];
+            if(value == Math.rint(value) && Math.abs(value) < 1e15)
+                line.append((long) value);
+            else if(Double.isFinite(value))
+                line.append(value);
+            else
+                line.append(format == MetricsFormat.JSONL ? "null" : "");
+        }
+        if(format == MetricsFormat.JSONL)
+            line.append('}');
+    }
+
+    //write the remaining rows and close the file
+    @Override
+    public void close() throws IOException {
+        synchronized (this){
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+
+        synchronized (this){
+            if(failure != null)
+                throw failure;
+        }
+    }
+
+    //things done per second in a number of nanoseconds, 0 when no time was measured
+    static double rate(long count, long nanos){
+        return nanos == 0 ? 0 : count * 1e9 / nanos;
+    }
+}
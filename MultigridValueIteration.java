@@ -0,0 +1,262 @@
+/**
+ * Coarse-to-fine value iteration with coarse-grid correction
+ * **/
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+//Value iteration on a hierarchy of coarsened grids.
+//A sweep moves value one cell, so on a large grid it takes hundreds of sweeps for the terminals
+//to be felt across the map. Every coarse level merges FACTOR x FACTOR blocks of the level below
+//into one cell, so a coarse step covers FACTOR cells: its discount is discount^FACTOR and its
+//cost is the discounted cost of FACTOR fine steps. The coarsest level is solved from zeros and
+//every finer level starts from the values of the level above copied into its blocks.
+//Cells walled off from every terminal never get value from one, and the coarse levels cannot
+//see them, so they start at the value of collecting their own reward forever instead.
+//A warm start alone saves few sweeps, a sweep only carries an error one cell and shrinks it by the
+//discount, so even a small error spread over the grid takes about as many sweeps as a cold start.
+//So the sweeps are in place and alternate direction, which carries a change across the grid in
+//one sweep and leaves an error that varies slowly over the blocks of the level, and once the warm
+//start has given every cell roughly the right greedy policy a CoarseCorrection removes most of
+//that error. A correction costs about five sweeps, so it only runs once the sweeps stall: the
+//residual of a sweep is above STALL of the one before, and SMOOTHING_SWEEPS have passed since the
+//last correction. While the sweeps still shrink the residual quickly they are cheaper.
+//A level too small to be coarsened is swept without corrections, its sweeps cost less than one.
+//In-place sweeps run on one thread.
+//A correction is dropped when its block system does not settle, because the greedy policy is
+//still changing or, without discounting, because the system is singular. A dropped correction
+//costs as much as an applied one, so the level stops correcting after the first.
+//Measured against cold Jacobi sweeps to the same epsilon this takes fewer backups, mostly on grids
+//with walled off regions, but on an open grid cold in-place alternating sweeps, the smoother used
+//here, are cheaper still: the warm start leaves an error of either sign where a cold start rises
+//to the values from one side.
+//A coarse level only warm starts the next one, and its values differ from the finer level's by
+//the merging of its cells anyway, so it stops once its greedy policy is within COARSE_EPSILON.
+//The original grid sweeps until its residual is within the tolerance of the requested epsilon, so
+//the result is the converged value table of the original problem however rough the coarse levels
+//and corrections are.
+//Without discounting a closed region has no finite value, so a level gives up after MAX_SWEEPS
+//sweeps and the solve reports that it did not converge.
+//The value tables of the original grid can be kept in an OffHeapArena, the coarse levels are
+//small and stay on the heap.
+class MultigridValueIteration {
+
+    static final int FACTOR = 2;
+
+    //sweeps of one level before giving up
+    static final int MAX_SWEEPS = 10000;
+
+    //sweeps of a level between corrections
+    static final int SMOOTHING_SWEEPS = 3;
+
+    //a sweep whose residual is above this fraction of the one before has stalled
+    static final double STALL = 0.9;
+
+    //the epsilon of the coarse levels, unless the requested one is looser
+    static final double COARSE_EPSILON = 1e-2;
+
+    //levels are coarsened until a side would be shorter than this
+    static final int COARSEST_SIDE = 16;
+
+    //levels from the original grid to the coarsest one
+    final List<TransitionModel> levels = new ArrayList<>();
+
+    //holds the value tables of the original grid, null keeps them on the heap
+    private final OffHeapArena arena;
+    private ValueTable values;
+
+    //sweeps of every level, index 0 is the original grid, and backups of the sweeps and corrections
+    final long[] sweeps;
+    long backups = 0;
+
+    //corrections applied and dropped over every level
+    int corrections = 0;
+    int dropped = 0;
+
+    //whether every level reached its tolerance
+    boolean converged = true;
+
+    public MultigridValueIteration(TransitionModel model, Problem problem){
+        this(model, problem, null);
+    }
+
+    //input: the model, the problem it was built from,
+    //the arena holding the original grid's value tables, null keeps them on the heap
+    public MultigridValueIteration(TransitionModel model, Problem problem, OffHeapArena arena){
+        this.arena = arena;
+        levels.add(model);
+
+        var level = model;
+        while(Math.min(level.rows, level.cols) / FACTOR >= COARSEST_SIDE){
+            level = coarsen(level, problem);
+            levels.add(level);
+        }
+        sweeps = new long[levels.size()];
+    }
+
+    /**
+     * Build the model of a grid coarsened by FACTOR in each direction.
+     * A block is a boulder when most of its cells are, and a terminal holding the largest
+     * magnitude terminal value when any of its cells is a terminal.
+     * input: the finer model, the problem it was built from
+     * output: the coarse model
+     * **/
+    static TransitionModel coarsen(TransitionModel fine, Problem problem){
+        int rows = (fine.rows + FACTOR - 1) / FACTOR;
+        int cols = (fine.cols + FACTOR - 1) / FACTOR;
+
+        var terminalValue = new double[rows * cols];
+        var terminals = new LinkedList<int[]>();
+        var boulders = new LinkedList<int[]>();
+        double rewardSum = 0;
+        int openCells = 0;
+
+        for(int r = 0; r < rows; r++)
+            for(int c = 0; c < cols; c++){
+                int cells = 0, boulderCells = 0;
+                boolean terminal = false;
+
+                for(int i = r*FACTOR; i < Math.min(fine.rows, (r+1)*FACTOR); i++)
+                    for(int j = c*FACTOR; j < Math.min(fine.cols, (c+1)*FACTOR); j++){
+                        var s = fine.state(i, j);
+                        cells++;
+                        if(fine.isBoulder(s))
+                            boulderCells++;
+                        else {
+                            rewardSum += fine.reward(s);
+                            openCells++;
+                        }
+                        if(fine.isTerminal(s) && (!terminal
+                                || Math.abs(fine.terminalValue(s)) > Math.abs(terminalValue[r*cols + c]))){
+                            terminal = true;
+                            terminalValue[r*cols + c] = fine.terminalValue(s);
+                        }
+                    }
+
+                //the coordinate lists hold integer values, like the text configuration
+                if(terminal)
+                    terminals.add(new int[]{r, c, (int) Math.round(terminalValue[r*cols + c])});
+                else if(2*boulderCells > cells)
+                    boulders.add(new int[]{r, c});
+            }
+
+        //the discounted cost of FACTOR steps over cells with the average reward
+        double stepReward = openCells == 0 ? 0 : rewardSum / openCells;
+        double cost = 0;
+        for(int t = 0; t < FACTOR; t++)
+            cost += Math.pow(fine.discount, t) * stepReward;
+
+        var coarse = new Problem(cols, rows, terminals, boulders, new int[]{0, 0},
+                problem.k, problem.episodes, Math.pow(fine.discount, FACTOR), problem.alpha, problem.noise, cost);
+        return new TransitionModel(coarse);
+    }
+
+    //copy the values of a coarse level into the blocks of the level below it
+    private static double[] prolong(ValueTable coarseValues, TransitionModel coarse, TransitionModel fine){
+        var fineValues = new double[fine.states];
+        for(int i = 0; i < fine.rows; i++)
+            for(int j = 0; j < fine.cols; j++)
+                fineValues[fine.state(i, j)] = coarseValues.get(coarse.state(i / FACTOR, j / FACTOR));
+        return fineValues;
+    }
+
+    //the states that can reach a terminal, the open cells of a region walled off from every terminal cannot
+    static boolean[] reachesTerminal(TransitionModel model){
+        var reaches = new boolean[model.states];
+        var stack = new int[model.states];
+        int top = 0;
+
+        //a search backwards from the terminals, every neighbour of an open cell can move into it
+        for(int s = 0; s < model.states; s++)
+            if(model.isTerminal(s)){
+                reaches[s] = true;
+                stack[top++] = s;
+            }
+        while(top > 0){
+            var s = stack[--top];
+            if(model.isBoulder(s))
+                continue;
+
+            var row = s / model.cols;
+            var col = s % model.cols;
+            int[] around = {row > 0 ? s - model.cols : -1, row < model.rows - 1 ? s + model.cols : -1,
+                    col > 0 ? s - 1 : -1, col < model.cols - 1 ? s + 1 : -1};
+            for(var p : around)
+                if(p >= 0 && !reaches[p]){
+                    reaches[p] = true;
+                    stack[top++] = p;
+                }
+        }
+        return reaches;
+    }
+
+    //start the states that cannot reach a terminal at reward/(1-discount),
+    //exact when the cells they can reach all have the same reward; without discounting they keep their start
+    private static void startClosedRegions(TransitionModel model, boolean[] reaches, double[] values){
+        if(model.discount >= 1)
+            return;
+
+        for(int s = 0; s < model.states; s++)
+            if(!reaches[s] && !model.isFixed(s))
+                values[s] = model.reward(s) / (1 - model.discount);
+    }
+
+    /**
+     * Solve every level from the coarsest to the original grid
+     * input: the epsilon the greedy policy of the original grid has to be within
+     * output: the converged values of the original grid
+     * **/
+    public ValueTable solve(double epsilon){
+        for(int level = levels.size() - 1; level >= 0; level--){
+            var model = levels.get(level);
+            var solver = new ValueIteration(model, level == 0 ? arena : null);
+
+            var initial = values == null
+                    ? PrioritizedSweeping.initialValues(model)
+                    : prolong(values, levels.get(level + 1), model);
+            var reaches = reachesTerminal(model);
+            startClosedRegions(model, reaches, initial);
+            solver.start(initial);
+
+            var correction = Math.min(model.rows, model.cols) / FACTOR >= COARSEST_SIDE
+                    ? new CoarseCorrection(model, reaches) : null;
+            var tolerance = ValueIteration.stoppingResidual(level == 0 ? epsilon : Math.max(epsilon, COARSE_EPSILON), model.discount);
+            var correcting = correction != null;
+            var sinceCorrection = 0;
+            var previous = Double.MAX_VALUE;
+            double residual;
+            while(true){
+                var event = SolverEvents.beginSweep();
+                residual = solver.sweepInPlace(SweepOrder.ALTERNATING, (int) sweeps[level]);
+                if(event != null)
+                    event.finish("MULTIGRID", level, (int) sweeps[level], solver.movableStates, residual);
+                sweeps[level]++;
+
+                if(residual < tolerance || sweeps[level] >= MAX_SWEEPS)
+                    break;
+                sinceCorrection++;
+                if(correcting && sinceCorrection >= SMOOTHING_SWEEPS && residual > STALL * previous){
+                    correcting = correction.correct(solver.values());
+                    sinceCorrection = 0;
+                }
+                previous = residual;
+            }
+            converged &= residual < tolerance;
+
+            backups += solver.backups;
+            if(correction != null){
+                backups += correction.backups;
+                corrections += correction.applied;
+                dropped += correction.dropped;
+            }
+            values = solver.values();
+        }
+        return values;
+    }
+
+    //the converged values of the original grid
+    ValueTable values(){
+        return values;
+    }
+}
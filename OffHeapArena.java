@@ -0,0 +1,139 @@
+/**
+ * Owner of off-heap tables
+ * **/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+//Allocates OffHeapDoubles and frees all of them at once when closed, so tables of any size
+//live outside the heap and are never traced or copied by the garbage collector.
+//Without a directory the doubles are in direct buffers, which count against -XX:MaxDirectMemorySize.
+//With a directory every table is a file mapped into memory, so tables can be larger than RAM
+//and the page cache keeps the parts in use resident; the files are deleted on close.
+//Closing frees the memory right away when sun.misc.Unsafe can release a buffer, otherwise
+//the buffers are left to the garbage collector.
+class OffHeapArena implements AutoCloseable {
+
+    //Unsafe.invokeCleaner and the instance to call it on, null when unavailable
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            var type = Class.forName("sun.misc.Unsafe");
+            var field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    //directory of the files backing the tables, null keeps them in memory
+    final Path directory;
+
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private final List<Path> files = new ArrayList<>();
+    private long bytes = 0;
+    private boolean closed = false;
+
+    public OffHeapArena(Path directory){
+        this.directory = directory;
+        if(directory != null)
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+    }
+
+    /**
+     * Allocate an array of doubles that lives until the arena is closed
+     * input: the number of doubles
+     * output: the array, every double is 0
+     * **/
+    public synchronized OffHeapDoubles allocate(long size){
+        if(closed)
+            throw new IllegalStateException("the arena is closed");
+
+        var segments = new ByteBuffer[(int) ((size + OffHeapDoubles.SEGMENT - 1) / OffHeapDoubles.SEGMENT)];
+        try {
+            FileChannel channel = null;
+            if(directory != null){
+                var file = Files.createTempFile(directory, "table", ".bin");
+                files.add(file);
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+
+            for(int i = 0; i < segments.length; i++){
+                var length = 8L*Math.min(OffHeapDoubles.SEGMENT, size - (long) i*OffHeapDoubles.SEGMENT);
+                //mapping past the end of the file grows it with zeros
+                var buffer = channel == null
+                        ? ByteBuffer.allocateDirect((int) length)
+                        : channel.map(FileChannel.MapMode.READ_WRITE, 8L*i*OffHeapDoubles.SEGMENT, length);
+                buffer.order(ByteOrder.nativeOrder());
+                buffers.add(buffer);
+                segments[i] = buffer;
+                bytes += length;
+            }
+
+            //a mapping stays valid after its channel is closed
+            if(channel != null)
+                channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new OffHeapDoubles(size, segments);
+    }
+
+    //bytes allocated by the arena so far
+    public synchronized long bytes(){
+        return bytes;
+    }
+
+    //free every array of the arena and delete its files
+    @Override
+    public synchronized void close(){
+        if(closed)
+            return;
+        closed = true;
+
+        for(var buffer : buffers)
+            free(buffer);
+        buffers.clear();
+
+        for(var file : files)
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.out.println("An error occurred.");
+                e.printStackTrace();
+            }
+        files.clear();
+    }
+
+    private static void free(ByteBuffer buffer){
+        if(INVOKE_CLEANER == null)
+            return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            //left to the garbage collector
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Doubles stored outside the heap
+ * **/
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+//A fixed size array of doubles in direct or file mapped buffers allocated by an OffHeapArena.
+//A buffer is indexed by int, so the doubles are split into segments of SEGMENT doubles
+//and the high bits of a long index pick the segment.
+//Every double starts at 0. The memory belongs to the arena, once it is closed the array must not be used.
+//As a ValueTable it holds one value per state.
+class OffHeapDoubles implements ValueTable {
+
+    //doubles per segment, a segment is 1GB
+    static final int SEGMENT_SHIFT = 27;
+    static final int SEGMENT = 1 << SEGMENT_SHIFT;
+    private static final int MASK = SEGMENT - 1;
+
+    //atomic access to a double of a buffer, the buffers are all in native order
+    private static final VarHandle SLOT = MethodHandles.byteBufferViewVarHandle(double[].class, ByteOrder.nativeOrder());
+
+    final long size;
+    private final ByteBuffer[] segments;
+
+    OffHeapDoubles(long size, ByteBuffer[] segments){
+        this.size = size;
+        this.segments = segments;
+    }
+
+    //the byte offset of an index within its segment
+    private static int offset(long index){
+        return ((int) index & MASK) << 3;
+    }
+
+    @Override
+    public double get(long index){
+        return segments[(int) (index >>> SEGMENT_SHIFT)].getDouble(offset(index));
+    }
+
+    @Override
+    public void set(long index, double value){
+        segments[(int) (index >>> SEGMENT_SHIFT)].putDouble(offset(index), value);
+    }
+
+    public double getVolatile(long index){
+        return (double) SLOT.getVolatile(segments[(int) (index >>> SEGMENT_SHIFT)], offset(index));
+    }
+
+    public boolean compareAndSet(long index, double expected, double value){
+        return SLOT.compareAndSet(segments[(int) (index >>> SEGMENT_SHIFT)], offset(index), expected, value);
+    }
+
+    //copy every double into a heap array of the same size
+    @Override
+    public double[] toArray(){
+        var array = new double[Math.toIntExact(size)];
+        for(int i = 0; i < segments.length; i++)
+            segments[i].asDoubleBuffer().get(0, array, i*SEGMENT, segments[i].capacity() >> 3);
+        return array;
+    }
+
+    //overwrite every double from a heap array of the same size
+    public void load(double[] array){
+        for(int i = 0; i < segments.length; i++)
+            segments[i].asDoubleBuffer().put(0, array, i*SEGMENT, segments[i].capacity() >> 3);
+    }
+
+    //overwrite every double from another array of the same size
+    public void load(OffHeapDoubles other){
+        for(int i = 0; i < segments.length; i++)
+            segments[i].put(0, other.segments[i], 0, segments[i].capacity());
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Q-table outside the heap
+ * **/
+
+//A Q-table laid out like DenseQTable, the value of action a in state s is at index s*ACTIONS + a,
+//but stored in an OffHeapArena so a table of any size adds nothing to the heap.
+//The table lives until its arena is closed.
+class OffHeapQTable extends QTable {
+
+    private final OffHeapArena arena;
+    final OffHeapDoubles q;
+
+    public OffHeapQTable(TransitionModel model, OffHeapArena arena){
+        super(model);
+        this.arena = arena;
+        q = arena.allocate((long) model.states * TransitionModel.ACTIONS);
+    }
+
+    @Override
+    public double get(int state, int action){
+        return q.get((long) state*TransitionModel.ACTIONS + action);
+    }
+
+    @Override
+    public void set(int state, int action, double value){
+        q.set((long) state*TransitionModel.ACTIONS + action, value);
+    }
+
+    @Override
+    public void updateAtomically(int state, int action, double alpha, double sample){
+        long slot = (long) state*TransitionModel.ACTIONS + action;
+        double current;
+        do {
+            current = q.getVolatile(slot);
+        } while(!q.compareAndSet(slot, current, (1-alpha)*current + alpha*sample));
+    }
+
+    //a copy in the same arena
+    @Override
+    public QTable cpy(){
+        var copy = new OffHeapQTable(model, arena);
+        copy.q.load(q);
+        return copy;
+    }
+
+    //a heap copy of the table
+    @Override
+    public double[] toArray(){
+        return q.toArray();
+    }
+
+    @Override
+    public void load(double[] values){
+        q.load(values);
+    }
+}
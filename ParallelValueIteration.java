@@ -0,0 +1,102 @@
+/**
+ * Parallel value iteration
+ * **/
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+//Synchronous value iteration with every sweep split into row bands run on a ForkJoinPool.
+//Bands only write their own states of the next buffer and the sweep joins every band
+//before the buffers are swapped, so the result is bit-identical to the sequential sweep.
+class ParallelValueIteration extends ValueIteration implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+    private final int bandRows;
+
+    public ParallelValueIteration(TransitionModel model, int threads){
+        this(model, threads, null);
+    }
+
+    //input: the model, the number of threads, the arena holding the value buffers, null keeps them on the heap
+    public ParallelValueIteration(TransitionModel model, int threads, OffHeapArena arena){
+        super(model, arena);
+        pool = new ForkJoinPool(threads);
+        //a few bands per thread so uneven bands still balance
+        bandRows = Math.max(1, model.rows / (threads * 4));
+    }
+
+    @Override
+    public double sweep(){
+        kernel();
+        var residual = pool.invoke(new Band(0, model.rows));
+        swap();
+        backups += movableStates;
+        return residual;
+    }
+
+    @Override
+    public void close(){
+        pool.shutdown();
+    }
+
+    //a band of rows, split in half until it is small enough to sweep directly
+    private class Band extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        final int fromRow;
+        final int toRow;
+
+        Band(int fromRow, int toRow){
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected Double compute(){
+            if(toRow - fromRow <= bandRows)
+                return sweep(fromRow * model.cols, toRow * model.cols);
+
+            var middle = (fromRow + toRow) >>> 1;
+            var top = new Band(fromRow, middle);
+            top.fork();
+            var bottom = new Band(middle, toRow).compute();
+            return Math.max(top.join(), bottom);
+        }
+    }
+
+    /**
+     * Print a scaling report of parallel value iteration
+     * input:
+     * args[0]: the problem configuration
+     * args[1]: the largest number of threads to try, defaults to the number of cores
+     * args[2]: the number of sweeps to time, defaults to K from the configuration
+     * **/
+    public static void main(String[] args){
+        var problem = A3.getGridProblem(args[0]);
+        var model = new TransitionModel(problem);
+        var maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        var sweeps = args.length > 2 ? Integer.parseInt(args[2]) : problem.k;
+
+        System.out.println("grid: " + model.rows + "x" + model.cols + ", sweeps: " + sweeps
+                + ", kernel: " + new ValueIteration(model).kernel().getClass().getName());
+        System.out.format("%10s%15s%15s%15s%n", "threads", "time (ms)", "sweeps/s", "speedup");
+
+        double baseline = 0;
+        for(int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads*2, maxThreads) : threads+1){
+            try(var solver = new ParallelValueIteration(model, threads)){
+                //warm up before timing
+                for(int i = 0; i < Math.min(sweeps, 10); i++)
+                    solver.sweep();
+
+                var start = System.nanoTime();
+                for(int i = 0; i < sweeps; i++)
+                    solver.sweep();
+                var millis = (System.nanoTime() - start) / 1e6;
+
+                if(threads == 1)
+                    baseline = millis;
+                System.out.format("%10d%15.1f%15.1f%15.2f%n", threads, millis, sweeps / (millis / 1000), baseline / millis);
+            }
+        }
+    }
+}
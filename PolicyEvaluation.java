@@ -0,0 +1,261 @@
+/**
+ * Exact policy evaluation
+ * **/
+
+//Evaluates a fixed policy by solving the linear system (I - discount*P_policy)V = R directly.
+//Every movable state has a row with its own diagonal and the at most three cells the
+//policy's action moves into; terminals and boulders have identity rows, and their known
+//values are moved into the right hand side of the rows that lead into them.
+//The matrix is stored in compressed rows and solved with BiCGSTAB preconditioned by its
+//diagonal. The residual b - Ax of the system is exactly the Bellman residual of the policy,
+//so solves stop on the same tolerance as the sweeping solvers.
+//If BiCGSTAB breaks down or stalls the solve finishes with Gauss-Seidel sweeps over the rows.
+//A residual computed in doubles is only known to within a few rounding errors of the values,
+//so a solve never aims below ROUNDING_ULPS ulps of the largest value, and with a discount
+//close to 1 it can still stop after MAX_SWEEPS sweeps with converged unset.
+class PolicyEvaluation {
+
+    //BiCGSTAB iterations before falling back to Gauss-Seidel, and Gauss-Seidel sweeps before giving up
+    static final int MAX_ITERATIONS = 10000;
+    static final int MAX_SWEEPS = 10000;
+
+    //ulps of the largest value the residual of a solve is allowed to round to
+    static final double ROUNDING_ULPS = 16;
+
+    //epsilon the exact solver mode solves to when none is configured
+    static final double EXACT_EPSILON = 1e-10;
+
+    final TransitionModel model;
+
+    private final int[] rowStart;
+    private final int[] column;
+    private final double[] entry;
+    private final double[] rhs;
+    private final double[] inverseDiagonal;
+
+    //outcomes of the action being built
+    private final int[] successor = new int[TransitionModel.OUTCOMES];
+    private final double[] outcomeProbability = new double[TransitionModel.OUTCOMES];
+
+    //BiCGSTAB work vectors
+    private final double[] r;
+    private final double[] rHat;
+    private final double[] p;
+    private final double[] v;
+    private final double[] s;
+    private final double[] t;
+    private final double[] y;
+    private final double[] z;
+
+    //matrix-vector products and Gauss-Seidel sweeps done so far, each costs about one evaluation sweep
+    long products = 0;
+    int iterations = 0;
+
+    //whether the last solve reached its tolerance
+    boolean converged = false;
+
+    //whether a state of the built policy only ever moves back into itself without discounting, leaving no solution
+    private boolean singular;
+
+    public PolicyEvaluation(TransitionModel model){
+        this.model = model;
+        int n = model.states;
+
+        rowStart = new int[n + 1];
+        column = new int[n * (TransitionModel.OUTCOMES + 1)];
+        entry = new double[column.length];
+        rhs = new double[n];
+        inverseDiagonal = new double[n];
+
+        r = new double[n];
+        rHat = new double[n];
+        p = new double[n];
+        v = new double[n];
+        s = new double[n];
+        t = new double[n];
+        y = new double[n];
+        z = new double[n];
+    }
+
+    /**
+     * Solve for the values of a policy
+     * input:
+     * the action of every state
+     * the values to start from, overwritten with the solution
+     * the residual to reach
+     * output: the Bellman residual of the policy at the solution, infinite when the system has no solution
+     * **/
+    double evaluate(int[] policy, double[] values, double tolerance){
+        build(policy);
+        if(singular){
+            converged = false;
+            return Double.POSITIVE_INFINITY;
+        }
+        return solve(values, tolerance);
+    }
+
+    //fill the rows of the system for a policy
+    private void build(int[] policy){
+        int nonzeros = 0;
+        singular = false;
+
+        for(int state = 0; state < model.states; state++){
+            rowStart[state] = nonzeros;
+            var diagonalAt = nonzeros++;
+            column[diagonalAt] = state;
+            entry[diagonalAt] = 1;
+
+            if(model.isFixed(state)){
+                rhs[state] = model.isTerminal(state) ? model.terminalValue(state) : 0;
+                inverseDiagonal[state] = 1;
+                continue;
+            }
+
+            double b = 0;
+            model.outcomes(state, policy[state], successor, outcomeProbability);
+            for(int o = 0; o < TransitionModel.OUTCOMES; o++){
+                var probability = outcomeProbability[o];
+                if(probability == 0)
+                    continue;
+
+                var next = successor[o];
+                b += probability*model.reward(next);
+
+                if(next == state)
+                    entry[diagonalAt] -= model.discount*probability;
+                else if(model.isTerminal(next))
+                    b += model.discount*probability*model.terminalValue(next);
+                else {
+                    column[nonzeros] = next;
+                    entry[nonzeros++] = -model.discount*probability;
+                }
+            }
+            rhs[state] = b;
+            inverseDiagonal[state] = 1/entry[diagonalAt];
+            singular |= entry[diagonalAt] == 0;
+        }
+        rowStart[model.states] = nonzeros;
+    }
+
+    //result = A*x
+    private void multiply(double[] x, double[] result){
+        for(int row = 0; row < model.states; row++){
+            double sum = 0;
+            for(int k = rowStart[row]; k < rowStart[row + 1]; k++)
+                sum += entry[k]*x[column[k]];
+            result[row] = sum;
+        }
+        products++;
+    }
+
+    //result = diag(A)^-1 * x
+    private void precondition(double[] x, double[] result){
+        for(int i = 0; i < x.length; i++)
+            result[i] = inverseDiagonal[i]*x[i];
+    }
+
+    private static double dot(double[] a, double[] b){
+        double sum = 0;
+        for(int i = 0; i < a.length; i++)
+            sum += a[i]*b[i];
+        return sum;
+    }
+
+    private static double maxNorm(double[] a){
+        double max = 0;
+        for(var value : a)
+            max = Math.max(max, Math.abs(value));
+        return max;
+    }
+
+    //max norm of b - A*x
+    private double residual(double[] x){
+        multiply(x, t);
+        double max = 0;
+        for(int i = 0; i < x.length; i++)
+            max = Math.max(max, Math.abs(rhs[i] - t[i]));
+        return max;
+    }
+
+    //the residual a solve can reach, the tolerance unless it is below the rounding error of the values
+    private static double target(double[] x, double tolerance){
+        return Math.max(tolerance, ROUNDING_ULPS*Math.ulp(maxNorm(x)));
+    }
+
+    //solve the built system in place, returns the final residual
+    private double solve(double[] x, double tolerance){
+        int n = model.states;
+
+        multiply(x, r);
+        for(int i = 0; i < n; i++){
+            r[i] = rhs[i] - r[i];
+            rHat[i] = r[i];
+            p[i] = 0;
+            v[i] = 0;
+        }
+        if(maxNorm(r) < target(x, tolerance)){
+            converged = true;
+            return maxNorm(r);
+        }
+
+        double rho = 1, alpha = 1, omega = 1;
+
+        for(int iteration = 0; iteration < MAX_ITERATIONS; iteration++){
+            iterations++;
+            var rhoNext = dot(rHat, r);
+            if(rhoNext == 0 || omega == 0)
+                break;
+
+            var beta = (rhoNext/rho)*(alpha/omega);
+            rho = rhoNext;
+            for(int i = 0; i < n; i++)
+                p[i] = r[i] + beta*(p[i] - omega*v[i]);
+
+            precondition(p, y);
+            multiply(y, v);
+            alpha = rho/dot(rHat, v);
+            if(!Double.isFinite(alpha))
+                break;
+
+            for(int i = 0; i < n; i++)
+                s[i] = r[i] - alpha*v[i];
+            if(maxNorm(s) < target(x, tolerance)){
+                for(int i = 0; i < n; i++)
+                    x[i] += alpha*y[i];
+                break;
+            }
+
+            precondition(s, z);
+            multiply(z, t);
+            var tt = dot(t, t);
+            omega = tt == 0 ? 0 : dot(t, s)/tt;
+
+            for(int i = 0; i < n; i++){
+                x[i] += alpha*y[i] + omega*z[i];
+                r[i] = s[i] - omega*t[i];
+            }
+            if(maxNorm(r) < target(x, tolerance))
+                break;
+        }
+
+        //the recurrence drifts from the true residual, check it before trusting the solution
+        var residual = residual(x);
+        for(int sweep = 0; sweep < MAX_SWEEPS && residual >= target(x, tolerance); sweep++){
+            gaussSeidel(x);
+            residual = residual(x);
+        }
+        converged = residual < target(x, tolerance);
+        return residual;
+    }
+
+    //one Gauss-Seidel sweep over the rows
+    private void gaussSeidel(double[] x){
+        for(int row = 0; row < model.states; row++){
+            double sum = rhs[row];
+            for(int k = rowStart[row] + 1; k < rowStart[row + 1]; k++)
+                sum -= entry[k]*x[column[k]];
+            x[row] = sum*inverseDiagonal[row];
+        }
+        products++;
+    }
+}
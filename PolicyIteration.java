@@ -0,0 +1,157 @@
+/**
+ * Policy iteration
+ * **/
+
+//Alternates evaluating a fixed policy with greedy improvement until the policy is stable.
+//An evaluation backup computes the value of the one action the policy picks instead of the
+//max over all four, so it is cheaper than a value iteration backup. Both are counted as one
+//backup, and the evaluation and improvement steps are timed to show what they cost.
+//Evaluation sweeps in place until its residual is within tolerance, or for a fixed number
+//of sweeps when evaluationSweeps is set (modified policy iteration). Modified policy iteration
+//also keeps going after the policy is stable until an evaluation sweep is within tolerance,
+//since a few sweeps leave the values short of the policy's true values.
+//With an exact evaluation the policy's values come from a linear solve instead of sweeps.
+//Without discounting a policy that never reaches a terminal has no finite values, so both the
+//rounds and the sweeps of one evaluation are bounded by a limit, e.g. K; a solve that hits the
+//limit of rounds stops with converged unset.
+class PolicyIteration {
+
+    final TransitionModel model;
+
+    private final double[] values;
+    //the values as a ValueTable for the helpers of the model
+    private final ValueTable table;
+    private final int[] policy;
+    private final int[] movableStates;
+
+    //evaluation sweeps per round, 0 evaluates until the residual is within tolerance
+    final int evaluationSweeps;
+
+    //linear solver evaluating the policy, null evaluates by sweeping
+    final PolicyEvaluation exact;
+
+    //most rounds, and most sweeps of an evaluation
+    final int limit;
+
+    //backups of the evaluation and improvement steps, improvement backups take the max over all actions
+    long evaluationBackups = 0;
+    long improvementBackups = 0;
+    int rounds = 0;
+
+    //time spent evaluating and improving
+    long evaluationNanos = 0;
+    long improvementNanos = 0;
+
+    //whether the policy is stable and its values within tolerance, and the residual of the last evaluation
+    boolean converged = false;
+    double residual = Double.POSITIVE_INFINITY;
+
+    //evaluate every policy exactly with a linear solve when exactEvaluation is set
+    public PolicyIteration(TransitionModel model, int evaluationSweeps, boolean exactEvaluation, int limit){
+        this.model = model;
+        this.evaluationSweeps = evaluationSweeps;
+        this.limit = limit;
+        exact = exactEvaluation ? new PolicyEvaluation(model) : null;
+        values = PrioritizedSweeping.initialValues(model);
+        table = ValueTable.of(values);
+        policy = new int[model.states];
+
+        int movable = 0;
+        for(int s = 0; s < model.states; s++)
+            if(!model.isFixed(s))
+                movable++;
+        movableStates = new int[movable];
+        movable = 0;
+        for(int s = 0; s < model.states; s++)
+            if(!model.isFixed(s))
+                movableStates[movable++] = s;
+
+        //start from the greedy policy of the initial values
+        for(var s : movableStates)
+            policy[s] = model.bestAction(table, s);
+    }
+
+    /**
+     * Run rounds of evaluation and improvement until the policy is stable or the limit of rounds is reached
+     * input: the Bellman residual the evaluation has to reach
+     * **/
+    public void solve(double tolerance){
+        while(rounds < limit){
+            long start = System.nanoTime();
+            var evaluated = evaluate(tolerance);
+            long evaluatedAt = System.nanoTime();
+            var changed = improve();
+            improvementNanos += System.nanoTime() - evaluatedAt;
+            evaluationNanos += evaluatedAt - start;
+            rounds++;
+
+            if(changed == 0 && evaluated){
+                converged = true;
+                return;
+            }
+        }
+    }
+
+    //evaluate the current policy, returns whether its values are within tolerance
+    private boolean evaluate(double tolerance){
+        if(exact != null){
+            var products = exact.products;
+            residual = exact.evaluate(policy, values, tolerance);
+            //a matrix-vector product touches every state like a sweep
+            evaluationBackups += (exact.products - products) * movableStates.length;
+            return exact.converged;
+        }
+
+        var maxSweeps = evaluationSweeps > 0 ? evaluationSweeps : limit;
+        int sweeps = 0;
+
+        do {
+            residual = 0;
+            for(var s : movableStates){
+                var value = model.actionValue(table, s, policy[s]);
+                residual = Math.max(residual, Math.abs(value - values[s]));
+                values[s] = value;
+            }
+            evaluationBackups += movableStates.length;
+            sweeps++;
+        } while(sweeps < maxSweeps && (evaluationSweeps > 0 || residual >= tolerance));
+
+        return residual < tolerance;
+    }
+
+    //make the policy greedy in the current values, keeping an action unless another is strictly better
+    //returns the number of states whose action changed
+    private int improve(){
+        int changed = 0;
+
+        for(var s : movableStates){
+            var best = model.bestAction(table, s);
+            if(best != policy[s] && model.actionValue(table, s, best) > model.actionValue(table, s, policy[s])){
+                policy[s] = best;
+                changed++;
+            }
+        }
+        improvementBackups += movableStates.length;
+        return changed;
+    }
+
+    //total backups, as counted by value iteration
+    long backups(){
+        return evaluationBackups + improvementBackups;
+    }
+
+    //the value table
+    double[] values(){
+        return values;
+    }
+
+    //the action the policy picks in a state
+    int action(int state){
+        return policy[state];
+    }
+
+    //number of states the policy acts in
+    int movableStates(){
+        return movableStates.length;
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Prioritized sweeping value iteration
+ * **/
+
+//Asynchronous value iteration that only backs up states whose successors changed.
+//Every state carries an upper bound on its Bellman error, which grows by
+//discount*P(successor)*|change| whenever a successor is backed up and is reset when the
+//state itself is backed up. States whose bound exceeds the tolerance wait in a priority
+//queue keyed on that bound, so the solver stops once every Bellman error is within tolerance.
+class PrioritizedSweeping {
+
+    final TransitionModel model;
+
+    private final double[] values;
+    //the values as a ValueTable for the helpers of the model
+    private final ValueTable table;
+    private final double[] errorBound;
+    private final StateQueue queue;
+
+    //predecessors of every state in compressed rows, with the largest probability
+    //over all actions of moving from the predecessor into the state
+    private final int[] predecessorStart;
+    private final int[] predecessor;
+    private final double[] weight;
+
+    //number of Bellman backups evaluated so far
+    long backups = 0;
+
+    public PrioritizedSweeping(TransitionModel model){
+        this(model, initialValues(model));
+    }
+
+    //start from a given value table, which is updated in place
+    public PrioritizedSweeping(TransitionModel model, double[] values){
+        this.model = model;
+        this.values = values;
+        table = ValueTable.of(values);
+        errorBound = new double[model.states];
+        queue = new StateQueue(model.states);
+
+        predecessorStart = new int[model.states + 1];
+        var targets = new int[TransitionModel.STRIDE];
+        var targetWeight = new double[TransitionModel.STRIDE];
+
+        for(int s = 0; s < model.states; s++){
+            var count = distinctSuccessors(s, targets, targetWeight);
+            for(int t = 0; t < count; t++)
+                predecessorStart[targets[t] + 1]++;
+        }
+        for(int s = 0; s < model.states; s++)
+            predecessorStart[s + 1] += predecessorStart[s];
+
+        predecessor = new int[predecessorStart[model.states]];
+        weight = new double[predecessor.length];
+        var fill = new int[model.states];
+
+        for(int s = 0; s < model.states; s++){
+            var count = distinctSuccessors(s, targets, targetWeight);
+            for(int t = 0; t < count; t++){
+                var edge = predecessorStart[targets[t]] + fill[targets[t]]++;
+                predecessor[edge] = s;
+                weight[edge] = targetWeight[t];
+            }
+        }
+    }
+
+    //the value table of a fresh problem, terminals hold their value and everything else is 0
+    static double[] initialValues(TransitionModel model){
+        var values = new double[model.states];
+        for(int s = 0; s < model.states; s++)
+            if(model.isTerminal(s))
+                values[s] = model.terminalValue(s);
+        return values;
+    }
+
+    //collect the distinct successors of a state over all actions with their largest probability
+    //returns the number of successors found
+    private int distinctSuccessors(int state, int[] targets, double[] targetWeight){
+        int count = 0;
+
+        var next = new int[TransitionModel.OUTCOMES];
+        var probability = new double[TransitionModel.OUTCOMES];
+
+        for(int a = 0; a < TransitionModel.ACTIONS; a++){
+            model.outcomes(state, a, next, probability);
+
+            for(int o = 0; o < TransitionModel.OUTCOMES; o++){
+                if(probability[o] == 0)
+                    continue;
+
+                int t = 0;
+                while(t < count && targets[t] != next[o])
+                    t++;
+
+                if(t == count){
+                    targets[count] = next[o];
+                    targetWeight[count++] = probability[o];
+                }
+                else
+                    targetWeight[t] = Math.max(targetWeight[t], probability[o]);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Re-solve a problem after a delta, starting from the converged values from before it.
+     * Only the states the delta touched are queued, everything else already has a Bellman
+     * error within tolerance and is only backed up when a change reaches it.
+     * This pays off for local edits, a boulder or terminal on a 300x300 grid takes 30k-300k
+     * backups against 7M cold, since the change shrinks by the discount with every cell from the edit.
+     * A global delta, a new transition cost or discount, changes every value and its old values are
+     * no better a start than the initial ones, a new cost took up to 30% more backups than cold,
+     * so it is solved cold.
+     * input:
+     * the model of the edited problem
+     * the converged values of the problem before the delta, left unchanged
+     * the delta
+     * the largest Bellman error allowed in any state
+     * output: the solver holding the converged values of the edited problem
+     * **/
+    static PrioritizedSweeping resolve(TransitionModel model, double[] previous, ProblemDelta delta, double tolerance){
+        if(delta.isGlobal()){
+            var cold = new PrioritizedSweeping(model);
+            cold.seedAll();
+            cold.solve(tolerance);
+            return cold;
+        }
+
+        var values = previous.clone();
+        for(int s = 0; s < model.states; s++)
+            if(model.isFixed(s))
+                values[s] = model.isTerminal(s) ? model.terminalValue(s) : 0;
+
+        var solver = new PrioritizedSweeping(model, values);
+        for(var s : delta.touchedStates(model))
+            solver.seed(s);
+
+        solver.solve(tolerance);
+        return solver;
+    }
+
+    //queue every state that is not fixed with its exact Bellman error
+    public void seedAll(){
+        for(int s = 0; s < model.states; s++)
+            seed(s);
+    }
+
+    //queue a state with its exact Bellman error
+    public void seed(int state){
+        if(model.isFixed(state))
+            return;
+
+        errorBound[state] = Math.abs(model.bestValue(table, state) - values[state]);
+        backups++;
+        if(errorBound[state] > 0)
+            queue.update(state, errorBound[state]);
+    }
+
+    //back up queued states in order of their error bound until every bound is within the tolerance
+    //input: the largest Bellman error allowed in any state
+    public void solve(double tolerance){
+        while(!queue.isEmpty()){
+            var s = queue.poll();
+            var value = model.bestValue(table, s);
+            var change = Math.abs(value - values[s]);
+            values[s] = value;
+            errorBound[s] = 0;
+            backups++;
+
+            if(change == 0)
+                continue;
+
+            for(int e = predecessorStart[s]; e < predecessorStart[s + 1]; e++){
+                var p = predecessor[e];
+                if(model.isFixed(p))
+                    continue;
+
+                errorBound[p] += model.discount*weight[e]*change;
+                if(errorBound[p] > tolerance)
+                    queue.update(p, errorBound[p]);
+            }
+        }
+    }
+
+    //the current value table, indexed by state
+    public double[] values(){
+        return values;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Grid problem configuration
+ * **/
+
+import java.util.LinkedList;
+
+// a class representing the problem
+// holds all the information from the configuration
+class Problem {
+
+    public int horizontal;
+    public int vertical;
+    public LinkedList<int[]> terminalStates;
+    public LinkedList<int[]> boulderStates;
+    public int[] startState;
+    public int k;
+    public int episodes;
+    public double discount;
+    public double alpha;
+    public double noise;
+    public double transitionCost;
+
+    //optional settings, left at their defaults when missing from the configuration
+    public double epsilon = 0; //convergence tolerance of the MDP solver, 0 runs all K iterations
+    public SolverMode solver = SolverMode.JACOBI;
+    public SweepOrder sweepOrder = SweepOrder.ROW_MAJOR; //state order of Gauss-Seidel sweeps
+    public int evaluationSweeps = 0; //policy evaluation sweeps per round of policy iteration, 0 evaluates to convergence
+    public boolean exactEvaluation = false; //evaluate policies with a sparse linear solve instead of sweeps
+    public int threads = 1; //worker threads of the parallel solvers
+    public QLearningMode qLearningMode = QLearningMode.SINGLE; //how Q-learning actors share the table
+    public QTableKind qTable = QTableKind.DENSE; //storage of the Q-table
+    public boolean offHeapValues = false; //keep the value tables of value iteration off the heap
+    public String offHeapDir = null; //directory of the files backing off-heap tables, null keeps them in memory
+    public String metrics = null; //path prefix of the per-sweep and per-episode metrics, null records nothing
+    public MetricsFormat metricsFormat = MetricsFormat.CSV;
+    public RngKind rng = RngKind.SPLITTABLE;
+    public long seed = 0; //a run is replayed exactly by configuring the same seed
+    public boolean seeded = false; //whether the seed was configured rather than taken from the clock
+    public String history = null; //path prefix of the recorded histories, null records nothing
+    public int keyframeInterval = 1000; //steps between full tables in a history
+    public boolean printBoards = true; //print the solution boards and the board at every queried step
+    public GridMap map = null; //binary map holding the cells, null when they are in the coordinate lists
+    public String cacheDir = null; //directory of the solution cache, null solves every run
+    public long cacheSizeMB = 256; //least recently used solutions are dropped past this size
+
+    public Problem(
+            int horizontal,
+            int vertical,
+            LinkedList<int[]> terminalStates,
+            LinkedList<int[]> boulderStates,
+            int[] startState,
+            int k,
+            int episodes,
+            double discount,
+            double alpha,
+            double noise,
+            double transitionCost){
+
+        this.horizontal = horizontal;
+        this.vertical = vertical;
+        this.terminalStates = terminalStates;
+        this.boulderStates = boulderStates;
+        this.startState = startState;
+        this.k = k;
+        this.episodes = episodes;
+        this.discount = discount;
+        this.alpha = alpha;
+        this.noise = noise;
+        this.transitionCost = transitionCost;
+    }
+
+    //a copy of the problem whose coordinate lists can be edited without changing this one
+    public Problem copy(){
+        var terminals = new LinkedList<int[]>();
+        for(var terminal : terminalStates)
+            terminals.add(terminal.clone());
+        var boulders = new LinkedList<int[]>();
+        for(var boulder : boulderStates)
+            boulders.add(boulder.clone());
+
+        var copy = new Problem(horizontal, vertical, terminals, boulders, startState.clone(),
+                k, episodes, discount, alpha, noise, transitionCost);
+        copy.epsilon = epsilon;
+        copy.solver = solver;
+        copy.sweepOrder = sweepOrder;
+        copy.evaluationSweeps = evaluationSweeps;
+        copy.exactEvaluation = exactEvaluation;
+        copy.threads = threads;
+        copy.qLearningMode = qLearningMode;
+        copy.qTable = qTable;
+        copy.offHeapValues = offHeapValues;
+        copy.offHeapDir = offHeapDir;
+        copy.metrics = metrics;
+        copy.metricsFormat = metricsFormat;
+        copy.rng = rng;
+        copy.seed = seed;
+        copy.seeded = seeded;
+        copy.history = history;
+        copy.keyframeInterval = keyframeInterval;
+        copy.printBoards = printBoards;
+        copy.map = map;
+        copy.cacheDir = cacheDir;
+        copy.cacheSizeMB = cacheSizeMB;
+        return copy;
+    }
+
+    //a string representation of the problem
+    public String toString(){
+        return "Horizontal: "+ horizontal + "\n"+"Vertical: "+ + vertical + "\n" + "Terminal states: "+ listToString(terminalStates) + "\n" + "Boulder states: " + listToString(boulderStates) + "\n" + "Start state: " + "[" + startState[0] + " " + startState[1] + "]\n" + "k: " +  k + "\n" + "episodes: " + episodes + "\n" + "discount: " + discount + "\n" + "alpha: "+  alpha + "\n" + "noise: " +  noise + "\n" + "transition cost: " + transitionCost + "\n" + "epsilon: " + epsilon + "\n" + "solver: " + solver + "\n" + "sweep order: " + sweepOrder + "\n" + "evaluation sweeps: " + evaluationSweeps + "\n" + "exact evaluation: " + exactEvaluation + "\n" + "threads: " + threads + "\n" + "q-learning mode: " + qLearningMode + "\n" + "q-table: " + qTable + "\n" + "off-heap values: " + offHeapValues + "\n" + "off-heap directory: " + offHeapDir + "\n" + "rng: " + rng + "\n" + "seed: " + seed + "\n" + "history: " + history + "\n" + "metrics: " + metrics + " (" + metricsFormat + ")\n" + "keyframe interval: " + keyframeInterval + "\n" + "print boards: " + printBoards + "\n" + "map: " + (map == null ? null : map.path) + "\n" + "cache: " + cacheDir + " (" + cacheSizeMB + " MB)";
+    }
+
+    //write list as string
+    private String listToString(LinkedList<int[]> list){
+        String result = "[";
+        for(int[] arr : list){
+            result += "[";
+            for(int i = 0; i < arr.length; i++)
+                result += arr[i] + ",";
+            result += "]";
+        }
+        result += "]";
+        return result;
+    }
+
+}
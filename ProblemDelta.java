@@ -0,0 +1,203 @@
+/**
+ * Local edits of a problem
+ * **/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//A set of edits to a solved problem: boulders added or removed, terminals set or removed,
+//and a new transition cost or discount. Cells are given in the coordinates of the configuration file.
+//Applying the delta gives the edited problem, and the cells it touched tell an incremental
+//solve where the old values stopped being converged. A new transition cost or discount changes
+//every state, so the delta is global and PrioritizedSweeping.resolve solves it cold.
+//Removals only edit the coordinate lists, cells coming from a binary map can only be added to.
+class ProblemDelta {
+
+    private final List<int[]> addedBoulders = new ArrayList<>();
+    private final List<int[]> removedBoulders = new ArrayList<>();
+    private final List<int[]> setTerminals = new ArrayList<>();
+    private final List<int[]> removedTerminals = new ArrayList<>();
+    private Double transitionCost = null;
+    private Double discount = null;
+
+    //make a cell a boulder
+    public ProblemDelta addBoulder(int x, int y){
+        addedBoulders.add(new int[]{x, y});
+        return this;
+    }
+
+    //make a boulder an open cell
+    public ProblemDelta removeBoulder(int x, int y){
+        removedBoulders.add(new int[]{x, y});
+        return this;
+    }
+
+    //make a cell a terminal with a value, or change the value of a terminal
+    public ProblemDelta setTerminal(int x, int y, int value){
+        setTerminals.add(new int[]{x, y, value});
+        return this;
+    }
+
+    //make a terminal an open cell
+    public ProblemDelta removeTerminal(int x, int y){
+        removedTerminals.add(new int[]{x, y});
+        return this;
+    }
+
+    //change the reward of every move
+    public ProblemDelta setTransitionCost(double cost){
+        transitionCost = cost;
+        return this;
+    }
+
+    //change the discount
+    public ProblemDelta setDiscount(double discount){
+        this.discount = discount;
+        return this;
+    }
+
+    //check if the delta changes every state rather than a few cells
+    public boolean isGlobal(){
+        return transitionCost != null || discount != null;
+    }
+
+    /**
+     * Apply the delta to a copy of a problem
+     * input: the problem
+     * output: the edited problem
+     * **/
+    public Problem apply(Problem problem){
+        var edited = problem.copy();
+
+        for(var cell : removedBoulders)
+            remove(edited.boulderStates, flip(cell, edited), "boulder");
+        for(var cell : removedTerminals)
+            remove(edited.terminalStates, flip(cell, edited), "terminal");
+
+        for(var cell : addedBoulders){
+            var at = flip(cell, edited);
+            edited.terminalStates.removeIf(terminal -> terminal[0] == at[0] && terminal[1] == at[1]);
+            edited.boulderStates.add(at);
+        }
+        for(var cell : setTerminals){
+            var at = flip(cell, edited);
+            edited.terminalStates.removeIf(terminal -> terminal[0] == at[0] && terminal[1] == at[1]);
+            edited.boulderStates.removeIf(boulder -> boulder[0] == at[0] && boulder[1] == at[1]);
+            edited.terminalStates.add(new int[]{at[0], at[1], cell[2]});
+        }
+
+        if(transitionCost != null)
+            edited.transitionCost = transitionCost;
+        if(discount != null)
+            edited.discount = discount;
+        return edited;
+    }
+
+    /**
+     * The states whose backups the delta changes: every edited cell and its neighbours,
+     * since an action only ever moves into a neighbouring cell
+     * input: the model of the edited problem
+     * output: the states, an edited cell and its neighbours may repeat
+     * **/
+    public int[] touchedStates(TransitionModel model){
+        var cells = new ArrayList<int[]>();
+        cells.addAll(addedBoulders);
+        cells.addAll(removedBoulders);
+        cells.addAll(setTerminals);
+        cells.addAll(removedTerminals);
+
+        var states = new int[cells.size() * 5];
+        int count = 0;
+        for(var cell : cells){
+            var row = model.rows - 1 - cell[1];
+            var col = cell[0];
+            int[][] around = {{0, 0}, {-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+            for(var offset : around){
+                var r = row + offset[0];
+                var c = col + offset[1];
+                if(r >= 0 && c >= 0 && r < model.rows && c < model.cols)
+                    states[count++] = model.state(r, c);
+            }
+        }
+        return Arrays.copyOf(states, count);
+    }
+
+    //the delta of the edit given after the configuration, null when the verb or its arguments are wrong
+    private static ProblemDelta parse(String[] args){
+        var delta = new ProblemDelta();
+        try {
+            switch(args[1]){
+                case "boulder":
+                    return args.length == 4 ? delta.addBoulder(Integer.parseInt(args[2]), Integer.parseInt(args[3])) : null;
+                case "open":
+                    return args.length == 4 ? delta.removeBoulder(Integer.parseInt(args[2]), Integer.parseInt(args[3])) : null;
+                case "terminal":
+                    return args.length == 5 ? delta.setTerminal(Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4])) : null;
+                case "cost":
+                    return args.length == 3 ? delta.setTransitionCost(Double.parseDouble(args[2])) : null;
+                case "discount":
+                    return args.length == 3 ? delta.setDiscount(Double.parseDouble(args[2])) : null;
+                default:
+                    return null;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    //a configuration coordinate in the row and column of the transition model
+    private static int[] flip(int[] cell, Problem problem){
+        var at = new int[]{cell[0], cell[1]};
+        A3.flipCoordinate(at, problem.vertical);
+        return at;
+    }
+
+    private static void remove(List<int[]> list, int[] at, String what){
+        if(!list.removeIf(cell -> cell[0] == at[0] && cell[1] == at[1]))
+            throw new IllegalArgumentException("no " + what + " at row " + at[0] + " column " + at[1]);
+    }
+
+    /**
+     * Compare an incremental re-solve after one edit with solving the edited problem from scratch
+     * input: configuration, then "boulder x y", "open x y", "terminal x y value", "cost value" or "discount value"
+     * **/
+    public static void main(String[] args){
+        var delta = args.length < 2 ? null : parse(args);
+        if(delta == null){
+            System.out.println("usage: ProblemDelta <configuration> boulder|open x y | terminal x y value | cost|discount value");
+            return;
+        }
+
+        var problem = A3.getGridProblem(args[0]);
+        var epsilon = problem.epsilon > 0 ? problem.epsilon : ValueIteration.DEFAULT_EPSILON;
+        var tolerance = ValueIteration.stoppingResidual(epsilon, problem.discount);
+        var editedTolerance = ValueIteration.stoppingResidual(epsilon, delta.apply(problem).discount);
+
+        var before = new PrioritizedSweeping(new TransitionModel(problem));
+        before.seedAll();
+        before.solve(tolerance);
+
+        var edited = new TransitionModel(delta.apply(problem));
+
+        var start = System.nanoTime();
+        var cold = new PrioritizedSweeping(edited);
+        cold.seedAll();
+        cold.solve(editedTolerance);
+        var coldTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        var incremental = PrioritizedSweeping.resolve(edited, before.values(), delta, editedTolerance);
+        var incrementalTime = System.nanoTime() - start;
+
+        double difference = 0;
+        for(int s = 0; s < edited.states; s++)
+            difference = Math.max(difference, Math.abs(cold.values()[s] - incremental.values()[s]));
+
+        System.out.println("cold:        " + cold.backups + " backups, " + coldTime / 1000000 + " ms");
+        System.out.println("incremental: " + incremental.backups + " backups, " + incrementalTime / 1000000 + " ms"
+                + (delta.isGlobal() ? ", solved cold since the delta is global" : ""));
+        System.out.println("largest difference: " + difference + " (epsilon " + epsilon + ")");
+    }
+}
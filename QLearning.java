@@ -0,0 +1,114 @@
+/**
+ * Q-learning over a primitive Q-table
+ * **/
+
+//Epsilon-greedy Q-learning on a QTable.
+//Episodes run from the start state until a terminal is reached and update the table in place.
+class QLearning {
+
+    //probability of exploring with a random action
+    static final double EPSILON = .2;
+
+    //actions picked by a uniform random value, in the order of A3.randomMove
+    private static final int[] RANDOM_ORDER = {
+            Direction.EAST.ordinal(), Direction.NORTH.ordinal(), Direction.SOUTH.ordinal(), Direction.WEST.ordinal()};
+
+    final TransitionModel model;
+    final QTable table;
+
+    private final int startState;
+    private final double alpha;
+    private final double discount;
+    private final Rng random;
+
+    //update the table with compare-and-set, for tables shared between threads
+    boolean atomicUpdates = false;
+
+    //records every update when set
+    HistoryRecorder history = null;
+
+    //measure every episode for recordEpisode when set
+    MetricsRecorder metrics = null;
+
+    //the discounted return, summed absolute TD error and wall time of the last episode when measured
+    private double episodeReturn;
+    private double tdErrors;
+    private long episodeNanos;
+
+    //learn on a table of the configured kind, an off-heap table is allocated in the given arena
+    public QLearning(TransitionModel model, Problem problem, OffHeapArena arena, Rng random){
+        this(model, problem, QTable.create(model, problem.qTable, arena), random);
+    }
+
+    //learn on a given table, which may be shared with other learners
+    public QLearning(TransitionModel model, Problem problem, QTable table, Rng random){
+        this.model = model;
+        this.random = random;
+        this.table = table;
+        startState = model.state(problem.startState[0], problem.startState[1]);
+        alpha = problem.alpha;
+        discount = problem.discount;
+    }
+
+    /**
+     * Runs one episode of Q-learning
+     * output: the number of steps taken
+     * **/
+    public int runEpisode(){
+        int state = startState;
+        int steps = 0;
+
+        long start = 0;
+        double weight = 1;
+        if(metrics != null){
+            start = System.nanoTime();
+            episodeReturn = 0;
+            tdErrors = 0;
+        }
+
+        while(!model.isTerminal(state)){
+            var action = policy(state);
+            var next = model.sample(state, action, random.nextDouble());
+
+            var sample = model.reward(next) + discount*table.value(next);
+            if(metrics != null){
+                episodeReturn += weight*model.reward(next);
+                weight *= discount;
+                tdErrors += Math.abs(sample - table.get(state, action));
+            }
+            if(atomicUpdates)
+                table.updateAtomically(state, action, alpha, sample);
+            else
+                table.set(state, action, (1-alpha)*table.get(state, action) + alpha*sample);
+
+            if(history != null)
+                history.record(state*TransitionModel.ACTIONS + action, table.get(state, action));
+
+            state = next;
+            steps++;
+        }
+
+        if(metrics != null){
+            episodeReturn += weight*model.terminalValue(state);
+            episodeNanos = System.nanoTime() - start;
+        }
+        return steps;
+    }
+
+    /**
+     * Record the measurements of the last episode, runEpisode has to have run with metrics set
+     * input: the index of the episode, the number of steps it took
+     * **/
+    void recordEpisode(int episode, int steps){
+        metrics.record(episode, steps, episodeReturn, steps == 0 ? 0 : tdErrors / steps,
+                MetricsRecorder.rate(steps, episodeNanos));
+    }
+
+    //the epsilon-greedy action of a state
+    int policy(int state){
+        if(random.nextDouble() < EPSILON)
+            return RANDOM_ORDER[(int) (random.nextDouble() * TransitionModel.ACTIONS)];
+
+        return table.bestAction(state, random);
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Multi-seed Q-learning experiments
+ * **/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//Runs independent Q-learning replicas concurrently, each with its own seeded RNG and Q-table,
+//and aggregates them at every episode an RL query asks for.
+//Replica streams are split from the base seed and results are merged in replica order,
+//so a run is deterministic for a given base seed whatever the number of threads.
+//Ties between best actions are broken from a stream split off each replica's, like the answers
+//of A3, so the captured episodes never change what a replica learns.
+class QLearningExperiment {
+
+    final TransitionModel model;
+    final Problem problem;
+
+    //holds the off-heap tables of the replicas
+    final OffHeapArena arena;
+
+    //episodes that are captured, sorted and distinct
+    final int[] steps;
+
+    //per captured episode and state, running mean and sum of squared deviations of the state value
+    final double[][] mean;
+    final double[][] m2;
+
+    //per captured episode, how many replicas pick each action of each state, indexed state*ACTIONS + action
+    //terminals and boulders have no action and are never counted
+    final int[][] policyCounts;
+
+    int replicas = 0;
+
+    public QLearningExperiment(TransitionModel model, Problem problem, OffHeapArena arena, int[] steps){
+        this.model = model;
+        this.problem = problem;
+        this.arena = arena;
+        this.steps = steps;
+        mean = new double[steps.length][model.states];
+        m2 = new double[steps.length][model.states];
+        policyCounts = new int[steps.length][model.states * TransitionModel.ACTIONS];
+    }
+
+    //what one replica saw at the captured episodes
+    static class Replica {
+        final double[][] values;
+        final byte[][] policy;
+
+        Replica(int captures, int states){
+            values = new double[captures][states];
+            policy = new byte[captures][states];
+        }
+    }
+
+    /**
+     * Run Q-learning replicas on a thread pool and aggregate them
+     * input:
+     * the number of replicas
+     * the number of threads
+     * the base seed every replica stream is split from
+     * **/
+    public void run(int count, int threads, long baseSeed) throws InterruptedException, ExecutionException {
+        var seeds = Rng.create(problem.rng, baseSeed);
+        var pool = Executors.newFixedThreadPool(threads);
+        var results = new ArrayList<Future<Replica>>();
+
+        try {
+            for(int i = 0; i < count; i++){
+                var stream = seeds.split();
+                results.add(pool.submit(() -> runReplica(stream)));
+            }
+
+            //merge in replica order so the statistics do not depend on scheduling
+            for(var result : results)
+                merge(result.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    //run every episode of one replica, capturing the table at the queried episodes
+    Replica runReplica(Rng random){
+        var tieBreaks = random.split();
+        var learner = new QLearning(model, problem, arena, random);
+        var replica = new Replica(steps.length, model.states);
+        int capture = 0;
+
+        for(int i = 0; i < problem.episodes && capture < steps.length; i++){
+            learner.runEpisode();
+
+            if(steps[capture] == i){
+                for(int s = 0; s < model.states; s++){
+                    replica.values[capture][s] = learner.table.value(s);
+                    if(!model.isFixed(s))
+                        replica.policy[capture][s] = (byte) learner.table.bestAction(s, tieBreaks);
+                }
+                capture++;
+            }
+        }
+        return replica;
+    }
+
+    //add a replica to the running statistics
+    void merge(Replica replica){
+        replicas++;
+
+        for(int c = 0; c < steps.length; c++)
+            for(int s = 0; s < model.states; s++){
+                var value = replica.values[c][s];
+                var delta = value - mean[c][s];
+                mean[c][s] += delta / replicas;
+                m2[c][s] += delta * (value - mean[c][s]);
+                if(!model.isFixed(s))
+                    policyCounts[c][s*TransitionModel.ACTIONS + replica.policy[c][s]]++;
+            }
+    }
+
+    //sample variance of a state value at a captured episode
+    public double variance(int capture, int state){
+        return replicas > 1 ? m2[capture][state] / (replicas - 1) : 0;
+    }
+
+    /**
+     * Run a multi-seed experiment and print the statistics for every RL query
+     * input:
+     * args[0]: the problem configuration
+     * args[1]: the queries
+     * args[2]: the number of replicas
+     * args[3]: the number of threads, defaults to the number of cores
+     * args[4]: the base seed, defaults to the seed in the configuration
+     * **/
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        var problem = A3.getGridProblem(args[0]);
+        A3.loadProblem(problem);
+        var queries = A3.getQueries(args[1]);
+        var count = Integer.parseInt(args[2]);
+        var threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        var baseSeed = args.length > 4 ? Long.parseLong(args[4]) : problem.seed;
+
+        var steps = queries.stream()
+                .filter(query -> query.method.equals("RL") && query.steps < problem.episodes)
+                .mapToInt(query -> query.steps)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        var model = new TransitionModel(problem);
+        var arena = A3.openArena(problem);
+        var experiment = new QLearningExperiment(model, problem, arena, steps);
+
+        var start = System.nanoTime();
+        try {
+            experiment.run(count, threads, baseSeed);
+        } finally {
+            arena.close();
+        }
+        var seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("\nQ-LEARNING EXPERIMENT: " + count + " replicas on " + threads + " threads in " + seconds + "s"
+                + "\n---------------------------------------");
+
+        for(var query : queries){
+            var capture = Arrays.binarySearch(steps, query.steps);
+            if(!query.method.equals("RL") || capture < 0)
+                continue;
+
+            var state = model.state(query.row, query.column);
+            if(query.query.equals("bestQValue"))
+                System.out.println(query + " : mean " + experiment.mean[capture][state]
+                        + " variance " + experiment.variance(capture, state));
+            else if(query.query.equals("bestPolicy")){
+                var agreement = new StringBuilder();
+                for(var dir : Direction.values())
+                    agreement.append(" ").append(dir).append(" ")
+                            .append(experiment.policyCounts[capture][state*TransitionModel.ACTIONS + dir.ordinal()]);
+                System.out.println(query + " :" + agreement);
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+/**
+ * Q-learning actor modes
+ * **/
+
+//Enum of the ways Q-learning actors share a Q-table
+enum QLearningMode {
+    SINGLE,  //one actor
+    HOGWILD, //several actors with plain racy writes
+    CAS      //several actors with compare-and-set updates
+}
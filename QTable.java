@@ -0,0 +1,85 @@
+/**
+ * Q-table over primitive storage
+ * **/
+
+//A table of the four action values of every state, with actions ordered as Direction.
+//Subclasses decide how the values are stored, the greedy queries are shared.
+//Every value starts at 0, including the ones of states that were never written.
+abstract class QTable {
+
+    //order ties are listed in by QTile.getAction: north, west, east, south
+    private static final int[] TIE_ORDER = {
+            Direction.NORTH.ordinal(), Direction.WEST.ordinal(), Direction.EAST.ordinal(), Direction.SOUTH.ordinal()};
+
+    final TransitionModel model;
+
+    QTable(TransitionModel model){
+        this.model = model;
+    }
+
+    //a table of the configured kind, an off-heap table is allocated in the given arena
+    static QTable create(TransitionModel model, QTableKind kind, OffHeapArena arena){
+        if(kind == QTableKind.SPARSE)
+            return new SparseQTable(model);
+        if(kind == QTableKind.OFF_HEAP)
+            return new OffHeapQTable(model, arena);
+        return new DenseQTable(model);
+    }
+
+    //the Q-value of an action in a state
+    public abstract double get(int state, int action);
+
+    //set the Q-value of an action in a state
+    public abstract void set(int state, int action, double value);
+
+    //blend a sample into the Q-value of an action in a state with a compare-and-set,
+    //retried until no other thread changed the value in between
+    public abstract void updateAtomically(int state, int action, double alpha, double sample);
+
+    //return a copy of this table
+    public abstract QTable cpy();
+
+    //every Q-value in one array indexed state*ACTIONS + action, which may be the table's own storage
+    public abstract double[] toArray();
+
+    //overwrite every Q-value from an array laid out like toArray
+    public void load(double[] values){
+        for(int s = 0; s < model.states; s++)
+            for(int a = 0; a < TransitionModel.ACTIONS; a++){
+                var value = values[s*TransitionModel.ACTIONS + a];
+                if(value != 0 || get(s, a) != 0)
+                    set(s, a, value);
+            }
+    }
+
+    //the value of a state, the terminal value for terminals and the best Q-value otherwise
+    public double value(int state){
+        if(model.isTerminal(state))
+            return model.terminalValue(state);
+
+        double val = get(state, 0);
+        for(int a = 1; a < TransitionModel.ACTIONS; a++){
+            var q = get(state, a);
+            if(q > val)
+                val = q;
+        }
+        return val;
+    }
+
+    //the best action of a state, ties are broken uniformly at random like QTile.getAction
+    public int bestAction(int state, Rng random){
+        double q0 = get(state, 0), q1 = get(state, 1), q2 = get(state, 2), q3 = get(state, 3);
+        double val = Math.max(Math.max(q0, q1), Math.max(q2, q3));
+
+        int ties = (q0 == val ? 1 : 0) + (q1 == val ? 1 : 0) + (q2 == val ? 1 : 0) + (q3 == val ? 1 : 0);
+
+        //pick the index-th tied action in tie order
+        int index = random.nextInt(ties);
+        for(int action : TIE_ORDER){
+            var q = action == 0 ? q0 : action == 1 ? q1 : action == 2 ? q2 : q3;
+            if(q == val && index-- == 0)
+                return action;
+        }
+        return TIE_ORDER[0];
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Q-table storage kinds
+ * **/
+
+//Enum of the ways a Q-table is stored
+enum QTableKind {
+    DENSE,    //one array over every state
+    SPARSE,   //pages allocated when first written
+    OFF_HEAP; //one array outside the heap
+
+    //parse a Q-table kind from the configuration, e.g. "OffHeap" or "off_heap"
+    static QTableKind fromConfig(String name){
+        var key = name.trim().replace("_", "").replace("-", "").toLowerCase();
+        for(var kind : values())
+            if(kind.name().replace("_", "").toLowerCase().equals(key))
+                return kind;
+        throw new IllegalArgumentException("Unknown Q-table: " + name);
+    }
+}
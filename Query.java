@@ -0,0 +1,28 @@
+/**
+ * Query about the grid
+ * **/
+
+//a class representing a query to answer about the grid
+class Query {
+
+    public int column; //h - horizontal
+    public int row; //v - vertical
+    public int steps;
+    public String method;
+    public String query;
+    public int vertical;
+    public Query(int column, int row, int steps, String method, String query, int vertical){
+        this.column = column;
+        this.row = row;
+        this.steps = steps;
+        this.method = method;
+        this.query = query;
+        this.vertical = vertical;
+    }
+
+    //string representation of the query
+    public String toString(){
+        return "\n The query is:  " +  column + ", " + (vertical - (row + 1)) + ", " + steps + ", " + method + ", " + query;
+    }
+
+}
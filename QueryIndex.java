@@ -0,0 +1,140 @@
+/**
+ * Step-indexed query dispatch
+ * **/
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+//The queries of one method compiled into arrays sorted by step.
+//Steps are reached in increasing order, so a cursor finds the queries of a step in O(1)
+//and only the scalar each query asks for is kept.
+class QueryIndex {
+
+    private static final int STATE_VALUE = 0;
+    private static final int BEST_POLICY = 1;
+    private static final int BEST_Q_VALUE = 2;
+
+    final Query[] queries;
+    private final int[] steps;
+    private final int[] states;
+    private final int[] kinds;
+
+    //the answer of every query, a value or the ordinal of a Direction
+    private final double[] answers;
+    private final boolean[] answered;
+
+    private int cursor = 0;
+
+    //answers are written here as soon as they are known when set
+    ResultWriter output = null;
+
+    //the table of every queried step the solver's final table does not answer is written here when set,
+    //to be stored in the solution cache
+    SolutionCache.Tables capture = null;
+
+    public QueryIndex(List<Query> all, String method, TransitionModel model){
+        queries = all.stream()
+                .filter(query -> query.method.equals(method))
+                .sorted(Comparator.comparingInt(query -> query.steps))
+                .toArray(Query[]::new);
+
+        steps = new int[queries.length];
+        states = new int[queries.length];
+        kinds = new int[queries.length];
+        answers = new double[queries.length];
+        answered = new boolean[queries.length];
+
+        for(int i = 0; i < queries.length; i++){
+            steps[i] = queries[i].steps;
+            states[i] = model.state(queries[i].row, queries[i].column);
+            if(queries[i].query.equals("bestPolicy"))
+                kinds[i] = BEST_POLICY;
+            else if(queries[i].query.equals("bestQValue"))
+                kinds[i] = BEST_Q_VALUE;
+            else
+                kinds[i] = STATE_VALUE;
+        }
+    }
+
+    //check if a query asks about a step, skipping queries of steps already passed
+    public boolean wants(int step){
+        while(cursor < steps.length && steps[cursor] < step)
+            cursor++;
+        return cursor < steps.length && steps[cursor] == step;
+    }
+
+    /**
+     * Answer the MDP queries of a step,
+     * boards and the solution cache get the values as a heap array at queried steps only
+     * input:
+     * the step
+     * the value table at that step
+     * the transition model used for the greedy policy
+     * **/
+    public void answer(int step, ValueTable values, TransitionModel model){
+        if(output != null && output.printBoards && wants(step)){
+            printBoardHeader(step);
+            output.valueBoard(values.heap(), model);
+        }
+        if(capture != null && wants(step) && capture.wants(step))
+            capture.capture(step, values.heap());
+
+        for(; wants(step); cursor++){
+            answers[cursor] = kinds[cursor] == BEST_POLICY
+                    ? model.bestAction(values, states[cursor])
+                    : values.get(states[cursor]);
+            answered[cursor] = true;
+
+            if(output != null)
+                output.answer(queries[cursor], answerString(cursor));
+        }
+    }
+
+    /**
+     * Answer the RL queries of a step
+     * input:
+     * the step
+     * the Q-table at that step
+     * the RNG breaking ties between best actions
+     * **/
+    public void answer(int step, QTable table, Rng random){
+        if(output != null && output.printBoards && wants(step)){
+            printBoardHeader(step);
+            output.qBoard(table, table.model);
+        }
+        if(capture != null && wants(step) && capture.wants(step))
+            capture.capture(step, table.toArray());
+
+        for(; wants(step); cursor++){
+            answers[cursor] = kinds[cursor] == BEST_POLICY
+                    ? table.bestAction(states[cursor], random)
+                    : table.value(states[cursor]);
+            answered[cursor] = true;
+
+            if(output != null)
+                output.answer(queries[cursor], answerString(cursor));
+        }
+    }
+
+    //the distinct steps that are queried, in increasing order
+    public int[] queriedSteps(){
+        return Arrays.stream(steps).distinct().toArray();
+    }
+
+    private void printBoardHeader(int step){
+        output.println("\nBOARD AT STEP " + step + "\n------------------------------\n");
+    }
+
+    //check if the i-th query has been answered
+    public boolean isAnswered(int i){
+        return answered[i];
+    }
+
+    //the answer of the i-th query as text
+    public String answerString(int i){
+        if(kinds[i] == BEST_POLICY)
+            return Direction.values()[(int) answers[i]].toString();
+        return Double.toString(answers[i]);
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * Streaming result output
+ * **/
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+//Writes results through a single buffered writer as soon as they are known.
+//Doubles are formatted by hand with a fixed number of decimals, rounding half up like
+//String.format, and boards are written cell by cell without building format strings.
+class ResultWriter implements AutoCloseable {
+
+    private static final String NEWLINE = System.lineSeparator();
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000};
+
+    //cell widths of value boards and Q-boards
+    static final int VALUE_WIDTH = 15;
+    static final int Q_WIDTH = 42;
+
+    private final BufferedWriter out;
+
+    //write the board of a table before the answers of every queried step
+    final boolean printBoards;
+
+    //reusable buffer for one cell
+    private final StringBuilder cell = new StringBuilder(64);
+
+    public ResultWriter(OutputStream stream, boolean printBoards){
+        out = new BufferedWriter(new OutputStreamWriter(new FlushEvents(stream), StandardCharsets.UTF_8), 1 << 16);
+        this.printBoards = printBoards;
+    }
+
+    //write a line of text
+    public void println(String text){
+        try {
+            out.write(text);
+            out.write(NEWLINE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //write the answer of a query
+    public void answer(Query query, String answer){
+        println(query + " : " + answer);
+    }
+
+    /**
+     * Write a board of state values, one row of the grid per line
+     * input:
+     * the value of every state
+     * the transition model of the grid
+     * **/
+    public void valueBoard(double[] values, TransitionModel model){
+        for(int i = 0; i < model.rows; i++){
+            for(int j = 0; j < model.cols; j++){
+                var s = model.state(i, j);
+                cell.setLength(0);
+
+                if(model.isBoulder(s))
+                    cell.append('B');
+                else{
+                    if(model.isTerminal(s))
+                        cell.append("T: ");
+                    appendFixed(cell, values[s], 2);
+                }
+                writeCell(VALUE_WIDTH);
+            }
+            println("");
+        }
+    }
+
+    /**
+     * Write a board of Q-values, one row of the grid per line
+     * input:
+     * the Q-table
+     * the transition model of the grid
+     * **/
+    public void qBoard(QTable table, TransitionModel model){
+        for(int i = 0; i < model.rows; i++){
+            for(int j = 0; j < model.cols; j++){
+                var s = model.state(i, j);
+                cell.setLength(0);
+
+                if(model.isBoulder(s))
+                    cell.append('B');
+                else if(model.isTerminal(s))
+                    cell.append("T: ").append(model.terminalValue(s));
+                else{
+                    cell.append("| N: ");
+                    appendFixed(cell, table.get(s, Direction.NORTH.ordinal()), 2);
+                    cell.append(" E: ");
+                    appendFixed(cell, table.get(s, Direction.EAST.ordinal()), 2);
+                    cell.append(" S: ");
+                    appendFixed(cell, table.get(s, Direction.SOUTH.ordinal()), 2);
+                    cell.append(" W: ");
+                    appendFixed(cell, table.get(s, Direction.WEST.ordinal()), 2);
+                    cell.append(" |");
+                }
+                writeCell(Q_WIDTH);
+            }
+            println("");
+        }
+    }
+
+    /**
+     * Write a table of objects, one row per line
+     * input:
+     * a table of objects
+     * the width every cell is right aligned in
+     * **/
+    public void table(Object[][] table, int width){
+        for(var row : table){
+            for(var item : row){
+                cell.setLength(0);
+                cell.append(item);
+                writeCell(width);
+            }
+            println("");
+        }
+    }
+
+    //write the cell buffer right aligned in a width
+    private void writeCell(int width){
+        try {
+            for(int pad = width - cell.length(); pad > 0; pad--)
+                out.write(' ');
+            out.append(cell);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //format a double with a fixed number of decimals
+    static String fixed(double value, int decimals){
+        var builder = new StringBuilder(24);
+        appendFixed(builder, value, decimals);
+        return builder.toString();
+    }
+
+    /**
+     * Append a double with a fixed number of decimals, rounding half up
+     * input:
+     * the builder
+     * the value
+     * the number of decimals, at most 8
+     * **/
+    static void appendFixed(StringBuilder builder, double value, int decimals){
+        var scale = POWERS_OF_TEN[decimals];
+        var magnitude = Math.abs(value);
+
+        //values too large for a scaled long, and NaN or infinities, fall back to the formatter
+        if(!(magnitude * scale < 1e17)){
+            builder.append(String.format("%." + decimals + "f", value));
+            return;
+        }
+
+        //String.format rounds the shortest decimal form of the value half up, 0.145 gives 0.15 but
+        //74.37499999999999 gives 74.37, the scaled double can't tell these apart near a half,
+        //so values within a few ulps of one are left to the formatter
+        var scaled = magnitude * scale;
+        var units = (long) scaled;
+        var half = scaled - units - 0.5;
+        if(Math.abs(half) <= 4*Math.ulp(scaled)){
+            builder.append(String.format("%." + decimals + "f", value));
+            return;
+        }
+        if(half > 0)
+            units++;
+        if(Double.doubleToRawLongBits(value) < 0)
+            builder.append('-');
+
+        builder.append(units / scale);
+        if(decimals == 0)
+            return;
+
+        builder.append('.');
+        var fraction = units % scale;
+        for(var digit = scale / 10; digit > 0; digit /= 10){
+            builder.append((char) ('0' + fraction / digit));
+            fraction %= digit;
+        }
+    }
+
+    public void flush(){
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close(){
+        flush();
+    }
+
+    //times every write of encoded output to the stream as an OutputFlushEvent
+    private static class FlushEvents extends FilterOutputStream {
+
+        private long total = 0;
+
+        FlushEvents(OutputStream stream){
+            super(stream);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            var event = SolverEvents.beginOutputFlush();
+            out.write(bytes, offset, length);
+            total += length;
+            if(event != null)
+                event.finish(length, total);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            var event = SolverEvents.beginOutputFlush();
+            out.flush();
+            if(event != null)
+                event.finish(0, total);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Random number generators
+ * **/
+
+import java.util.SplittableRandom;
+
+//A seeded random number generator.
+//Instances are not thread-safe, every thread gets its own stream with split().
+interface Rng {
+
+    //a uniform double in [0, 1)
+    double nextDouble();
+
+    //a uniform int in [0, bound)
+    int nextInt(int bound);
+
+    //a uniform long
+    long nextLong();
+
+    //a new generator with a stream independent of this one, this generator moves on
+    Rng split();
+
+    //create a generator of the given kind from a seed
+    static Rng create(RngKind kind, long seed){
+        if(kind == RngKind.XOSHIRO)
+            return new Xoshiro256Rng(seed);
+        return new SplittableRng(new SplittableRandom(seed));
+    }
+}
+
+//A generator backed by java.util.SplittableRandom
+class SplittableRng implements Rng {
+
+    private final SplittableRandom random;
+
+    SplittableRng(SplittableRandom random){
+        this.random = random;
+    }
+
+    @Override
+    public double nextDouble(){
+        return random.nextDouble();
+    }
+
+    @Override
+    public int nextInt(int bound){
+        return random.nextInt(bound);
+    }
+
+    @Override
+    public long nextLong(){
+        return random.nextLong();
+    }
+
+    @Override
+    public Rng split(){
+        return new SplittableRng(random.split());
+    }
+}
+
+//A xoshiro256** generator, the state is seeded with SplitMix64.
+//split() hands the current stream to the new generator and jumps this one 2^128 steps ahead,
+//so the streams never overlap.
+class Xoshiro256Rng implements Rng {
+
+    private static final long[] JUMP = {0x180ec6d33cfd0abaL, 0xd5a61266f0c9392cL, 0xa9582618e03fc9aaL, 0x39abdc4529b1661cL};
+
+    private long s0;
+    private long s1;
+    private long s2;
+    private long s3;
+
+    Xoshiro256Rng(long seed){
+        s0 = splitMix(seed += 0x9e3779b97f4a7c15L);
+        s1 = splitMix(seed += 0x9e3779b97f4a7c15L);
+        s2 = splitMix(seed += 0x9e3779b97f4a7c15L);
+        s3 = splitMix(seed + 0x9e3779b97f4a7c15L);
+    }
+
+    private Xoshiro256Rng(long s0, long s1, long s2, long s3){
+        this.s0 = s0;
+        this.s1 = s1;
+        this.s2 = s2;
+        this.s3 = s3;
+    }
+
+    private static long splitMix(long z){
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public long nextLong(){
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+
+        return result;
+    }
+
+    @Override
+    public double nextDouble(){
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    //Lemire's multiply-and-reject method, unbiased for every bound
+    @Override
+    public int nextInt(int bound){
+        long product = (nextLong() >>> 32) * bound;
+        long low = product & 0xFFFFFFFFL;
+
+        if(low < bound){
+            long threshold = (0x100000000L - bound) % bound;
+            while(low < threshold){
+                product = (nextLong() >>> 32) * bound;
+                low = product & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+
+    @Override
+    public Rng split(){
+        var stream = new Xoshiro256Rng(s0, s1, s2, s3);
+        jump();
+        return stream;
+    }
+
+    //advance the state 2^128 steps
+    private void jump(){
+        long t0 = 0, t1 = 0, t2 = 0, t3 = 0;
+
+        for(long word : JUMP)
+            for(int b = 0; b < 64; b++){
+                if((word & (1L << b)) != 0){
+                    t0 ^= s0;
+                    t1 ^= s1;
+                    t2 ^= s2;
+                    t3 ^= s3;
+                }
+                nextLong();
+            }
+
+        s0 = t0;
+        s1 = t1;
+        s2 = t2;
+        s3 = t3;
+    }
+}
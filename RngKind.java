@@ -0,0 +1,9 @@
+/**
+ * Random number generator backends
+ * **/
+
+//Enum of the random number generator backends
+enum RngKind {
+    SPLITTABLE, //java.util.SplittableRandom
+    XOSHIRO     //xoshiro256**
+}
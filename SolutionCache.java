@@ -0,0 +1,433 @@
+/**
+ * Disk cache of solved tables
+ * **/
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+//A directory of solved value and Q-tables keyed by a fingerprint of everything the solution depends on.
+//An entry holds the final table, which answers every step from the entry's final step on, and the
+//table of every queried step before it. The solvers without iterations answer every step with the
+//final table, so that is all they store.
+//A run whose queried steps are all answered by an entry maps the file instead of solving. A run
+//asking for steps the entry does not hold solves again and adds the tables of its steps to the
+//ones already there, so the entry grows with the query files run against it.
+//The tables of a solve are written into the entry's temporary file as they are captured, so a
+//solve keeps at most one of them on the heap.
+//Entries are touched when used and the least recently used ones are deleted once the directory
+//grows past its size cap. The entry just stored is never deleted, when it alone is over the cap
+//store says so and the directory stays over it until the next store.
+//
+//Entry layout:
+//  header: magic, version, table size, step count, table count, final table, final step, index offset
+//  tables: table size doubles each, steps with equal tables share one
+//  index: (int step, int table) pairs sorted by step
+class SolutionCache {
+
+    static final int MAGIC = 0x534f4c43; //"SOLC"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 4 + 4 + 8;
+    static final String SUFFIX = ".sol";
+    static final String PARTIAL_SUFFIX = ".tmp";
+
+    //the final step of an entry whose final table only answers the steps past the last one
+    static final int NO_FINAL_STEP = Integer.MAX_VALUE;
+
+    //tables are mapped in windows of this many doubles
+    private static final int WINDOW = 1 << 27;
+
+    final Path directory;
+    final long maxBytes;
+
+    public SolutionCache(Path directory, long maxBytes){
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Fingerprint the parts of a problem one solver depends on
+     * input:
+     * the problem
+     * "MDP" or "RL"
+     * output: a hex key stable across runs
+     * **/
+    static String fingerprint(Problem problem, String method){
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            var data = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+
+            data.writeInt(VERSION);
+            data.writeUTF(method);
+            data.writeInt(problem.horizontal);
+            data.writeInt(problem.vertical);
+            for(var terminal : problem.terminalStates)
+                for(var value : terminal)
+                    data.writeInt(value);
+            data.writeInt(-1);
+            for(var boulder : problem.boulderStates)
+                for(var value : boulder)
+                    data.writeInt(value);
+            data.writeInt(-1);
+
+            //a map is identified by its file rather than hashing millions of cells every run
+            if(problem.map != null){
+                var path = problem.map.path.toAbsolutePath();
+                data.writeUTF(path.toString());
+                data.writeLong(Files.size(path));
+                data.writeLong(Files.getLastModifiedTime(path).toMillis());
+            }
+
+            data.writeDouble(problem.discount);
+            data.writeDouble(problem.noise);
+            data.writeDouble(problem.transitionCost);
+
+            if(method.equals("MDP")){
+                data.writeInt(problem.k);
+                data.writeDouble(problem.epsilon);
+                data.writeUTF(problem.solver.name());
+                data.writeUTF(problem.sweepOrder.name());
+                data.writeInt(problem.evaluationSweeps);
+                data.writeBoolean(problem.exactEvaluation);
+            }
+            else {
+                data.writeInt(problem.startState[0]);
+                data.writeInt(problem.startState[1]);
+                data.writeInt(problem.episodes);
+                data.writeDouble(problem.alpha);
+                data.writeUTF(problem.qLearningMode.name());
+                data.writeInt(problem.qLearningMode == QLearningMode.SINGLE ? 1 : problem.threads);
+                data.writeUTF(problem.rng.name());
+                data.writeLong(problem.seed);
+            }
+            data.flush();
+
+            var key = new StringBuilder(method.toLowerCase()).append('-');
+            var hash = digest.digest();
+            for(int i = 0; i < 16; i++)
+                key.append(String.format("%02x", hash[i]));
+            return key.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Path file(String key){
+        return directory.resolve(key + SUFFIX);
+    }
+
+    /**
+     * Open the entry of a key, marking it as recently used
+     * input: the key
+     * output: the entry, or null when there is none
+     * **/
+    Entry lookup(String key){
+        var file = file(key);
+        if(!Files.exists(file))
+            return null;
+
+        try {
+            var entry = new Entry(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return entry;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Start collecting the tables of a solve
+     * input:
+     * the key
+     * the number of values of a table
+     * the entry of the key the solve replaces, whose steps are kept, null when there is none
+     * output: the tables, to be stored under the key when the solve is done
+     * **/
+    Tables capture(String key, long tableSize, Entry previous){
+        var file = file(key);
+        try {
+            return new Tables(file.resolveSibling(file.getFileName() + PARTIAL_SUFFIX), tableSize, previous);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the tables of a solve under a key, then shrink the directory to its cap
+     * input:
+     * the key
+     * the captured tables, their file is finished and closed
+     * the final table
+     * output: false when the entry alone is larger than the cap, it is kept anyway
+     * **/
+    boolean store(String key, Tables tables, double[] finalTable){
+        var event = SolverEvents.beginSnapshotCapture();
+        var file = file(key);
+        long bytes;
+
+        try {
+            tables.keepPrevious();
+            int finalIndex = tables.add(finalTable);
+            bytes = tables.finish(finalIndex);
+
+            Files.move(tables.partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            if(event != null)
+                event.finish("cache store", -1, tables.tableSize, bytes);
+            evict(file);
+            return bytes <= maxBytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //delete the least recently used entries until the directory fits in its cap, never the one just stored
+    private void evict(Path stored) throws IOException {
+        List<Path> entries;
+        try(var files = Files.list(directory)){
+            entries = new ArrayList<>(files.filter(path -> path.toString().endsWith(SUFFIX)).toList());
+        }
+
+        long total = 0;
+        for(var entry : entries)
+            total += Files.size(entry);
+
+        entries.sort(Comparator.comparingLong(path -> {
+            try {
+                return Files.getLastModifiedTime(path).toMillis();
+            } catch (IOException e) {
+                return 0;
+            }
+        }));
+
+        for(int i = 0; i < entries.size() && total > maxBytes; i++){
+            if(entries.get(i).equals(stored))
+                continue;
+            total -= Files.size(entries.get(i));
+            Files.deleteIfExists(entries.get(i));
+        }
+    }
+
+    //write a table into a file at an offset
+    private static void write(FileChannel channel, long offset, double[] table) throws IOException {
+        for(int start = 0; start < table.length; start += WINDOW){
+            int length = Math.min(WINDOW, table.length - start);
+            channel.map(FileChannel.MapMode.READ_WRITE, offset + 8L*start, 8L*length)
+                    .asDoubleBuffer().put(table, start, length);
+        }
+    }
+
+    //the tables of a solve, written into the temporary file of its entry while it runs
+    static class Tables {
+        final long tableSize;
+        //the entry the solve replaces, null when there is none
+        final Entry previous;
+
+        //the captured steps and the table of each, in the order they were captured
+        final List<Integer> steps = new ArrayList<>();
+        final List<Integer> tableOf = new ArrayList<>();
+        int tables = 0;
+
+        //the solver sets the step from which its final table answers every step,
+        //steps from it on are not captured
+        int finalStep = NO_FINAL_STEP;
+
+        private final Path partial;
+        private final FileChannel channel;
+
+        //the last table written, a step with an equal table shares it
+        private double[] last;
+
+        Tables(Path partial, long tableSize, Entry previous) throws IOException {
+            this.partial = partial;
+            this.tableSize = tableSize;
+            this.previous = previous;
+            channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        //check if a step needs its own table, the final table answers the steps from finalStep on
+        boolean wants(int step){
+            return step < finalStep;
+        }
+
+        //keep the table at a step, sharing it with the previous step when they are equal
+        void capture(int step, double[] table){
+            var event = SolverEvents.beginSnapshotCapture();
+            var count = tables;
+            steps.add(step);
+            tableOf.add(add(table));
+            if(event != null)
+                event.finish("cache", step, table.length, tables > count ? 8L*table.length : 0);
+        }
+
+        //write a table after the ones already written unless it equals the last of them
+        private int add(double[] table){
+            if(last != null && Arrays.equals(last, table))
+                return tables - 1;
+
+            try {
+                write(channel, HEADER_SIZE + 8L*tableSize*tables, table);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if(last == null)
+                last = new double[table.length];
+            System.arraycopy(table, 0, last, 0, table.length);
+            return tables++;
+        }
+
+        //add the steps of the replaced entry that were not captured and that the final table does not answer
+        private void keepPrevious(){
+            if(previous == null)
+                return;
+
+            var copied = new int[previous.tableCount];
+            Arrays.fill(copied, -1);
+            for(int i = 0; i < previous.steps.length; i++){
+                var step = previous.steps[i];
+                if(step >= finalStep || steps.contains(step))
+                    continue;
+
+                var table = previous.tableOf[i];
+                if(copied[table] < 0)
+                    copied[table] = add(previous.read(table));
+                steps.add(step);
+                tableOf.add(copied[table]);
+            }
+        }
+
+        //write the index after the tables and the header, then close the file
+        //the steps the final table answers are left out, a solver may only know where they start once it is done
+        //returns the size of the file
+        private long finish(int finalTable) throws IOException {
+            var order = new ArrayList<Integer>();
+            for(int i = 0; i < steps.size(); i++)
+                if(steps.get(i) < finalStep)
+                    order.add(i);
+            order.sort(Comparator.comparingInt(steps::get));
+
+            long indexOffset = HEADER_SIZE + 8L*tableSize*tables;
+            var index = channel.map(FileChannel.MapMode.READ_WRITE, indexOffset, 8L*order.size());
+            for(var i : order){
+                index.putInt(steps.get(i));
+                index.putInt(tableOf.get(i));
+            }
+
+            var header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putLong(tableSize);
+            header.putInt(order.size());
+            header.putInt(tables);
+            header.putInt(finalTable);
+            header.putInt(finalStep);
+            header.putLong(indexOffset);
+            channel.close();
+            return indexOffset + 8L*order.size();
+        }
+    }
+
+    //a mapped cache entry
+    static class Entry {
+        private final Path file;
+        private final long tableSize;
+        private final int[] steps;
+        private final int[] tableOf;
+        private final int tableCount;
+        private final int finalTable;
+
+        //every step from this one on is answered by the final table
+        final int finalStep;
+
+        Entry(Path file) throws IOException {
+            this.file = file;
+            try(var channel = FileChannel.open(file, StandardOpenOption.READ)){
+                if(channel.size() < HEADER_SIZE)
+                    throw new IOException(file + " is truncated");
+                var header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+                if(header.getInt() != MAGIC || header.getInt() != VERSION)
+                    throw new IOException(file + " is not a solution cache entry");
+
+                tableSize = header.getLong();
+                steps = new int[header.getInt()];
+                tableOf = new int[steps.length];
+                tableCount = header.getInt();
+                finalTable = header.getInt();
+                finalStep = header.getInt();
+                var indexOffset = header.getLong();
+
+                if(indexOffset != HEADER_SIZE + 8L*tableSize*tableCount || channel.size() < indexOffset + 8L*steps.length)
+                    throw new IOException(file + " is truncated");
+
+                var index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, 8L*steps.length);
+                for(int i = 0; i < steps.length; i++){
+                    steps[i] = index.getInt();
+                    tableOf[i] = index.getInt();
+                }
+            }
+        }
+
+        //position of a step in the index, negative when it is not stored
+        int index(int step){
+            return Arrays.binarySearch(steps, step);
+        }
+
+        //check if the entry answers every step asked for
+        boolean answers(int[] queried){
+            for(var step : queried)
+                if(step < finalStep && index(step) < 0)
+                    return false;
+            return true;
+        }
+
+        //the table at a step the entry answers
+        double[] table(int step){
+            if(step >= finalStep)
+                return finalTable();
+            return read(tableOf[index(step)]);
+        }
+
+        //the table at the end of the solve
+        double[] finalTable(){
+            return read(finalTable);
+        }
+
+        private double[] read(int table){
+            var values = new double[(int) tableSize];
+            long offset = HEADER_SIZE + 8L*tableSize*table;
+
+            try(var channel = FileChannel.open(file, StandardOpenOption.READ)){
+                for(int start = 0; start < values.length; start += WINDOW){
+                    int length = Math.min(WINDOW, values.length - start);
+                    channel.map(FileChannel.MapMode.READ_ONLY, offset + 8L*start, 8L*length)
+                            .asDoubleBuffer().get(values, start, length);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return values;
+        }
+    }
+}
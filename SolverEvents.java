@@ -0,0 +1,240 @@
+/**
+ * Flight recorder events
+ * **/
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//JDK Flight Recorder events of the phases of a run, all under the "Tabular RL" category.
+//An instrumented phase gets a begun event from one of the begin methods before the work and
+//calls finish(...) on it after; finish fills in the fields and commits only when shouldCommit()
+//says the event is being recorded.
+//Loading the first event class starts the flight recorder's machinery, which takes a good part
+//of a second, so until a recording has been started in the JVM the begin methods return null
+//without touching an event class and the instrumented phase only checks for null.
+//
+//Record a run with: java -XX:StartFlightRecording=filename=run.jfr A3 <configuration> <queries>
+//and list the events with: jfr print --categories "Tabular RL" run.jfr
+final class SolverEvents {
+
+    private SolverEvents(){
+    }
+
+    //check if the flight recorder has been started, by a command line option or jcmd JFR.start
+    static boolean recording(){
+        return FlightRecorder.isInitialized();
+    }
+
+    static ProblemLoadEvent beginProblemLoad(){
+        if(!recording())
+            return null;
+        var event = new ProblemLoadEvent();
+        event.begin();
+        return event;
+    }
+
+    static SweepEvent beginSweep(){
+        if(!recording())
+            return null;
+        var event = new SweepEvent();
+        event.begin();
+        return event;
+    }
+
+    static EpisodeBatchEvent beginEpisodeBatch(){
+        if(!recording())
+            return null;
+        var event = new EpisodeBatchEvent();
+        event.begin();
+        return event;
+    }
+
+    static SnapshotCaptureEvent beginSnapshotCapture(){
+        if(!recording())
+            return null;
+        var event = new SnapshotCaptureEvent();
+        event.begin();
+        return event;
+    }
+
+    static OutputFlushEvent beginOutputFlush(){
+        if(!recording())
+            return null;
+        var event = new OutputFlushEvent();
+        event.begin();
+        return event;
+    }
+
+    @Name("tabular.ProblemLoad")
+    @Label("Problem Load")
+    @Category("Tabular RL")
+    @Description("Reading a configuration or map and compiling its transition model")
+    static class ProblemLoadEvent extends Event {
+
+        @Label("Path")
+        String path;
+
+        @Label("Rows")
+        int rows;
+
+        @Label("Columns")
+        int columns;
+
+        @Label("States")
+        int states;
+
+        @Label("Terminals")
+        int terminals;
+
+        @Label("Boulders")
+        int boulders;
+
+        void finish(String path, TransitionModel model){
+            end();
+            if(!shouldCommit())
+                return;
+
+            this.path = path;
+            rows = model.rows;
+            columns = model.cols;
+            states = model.states;
+            for(int s = 0; s < model.states; s++){
+                if(model.isTerminal(s))
+                    terminals++;
+                if(model.isBoulder(s))
+                    boulders++;
+            }
+            commit();
+        }
+    }
+
+    @Name("tabular.Sweep")
+    @Label("Value Iteration Sweep")
+    @Category("Tabular RL")
+    @Description("One sweep of value iteration over every state")
+    @StackTrace(false)
+    static class SweepEvent extends Event {
+
+        @Label("Solver")
+        String solver;
+
+        @Label("Level")
+        @Description("Grid level of multigrid, 0 is the original grid")
+        int level;
+
+        @Label("Iteration")
+        int iteration;
+
+        @Label("States Touched")
+        long statesTouched;
+
+        @Label("Residual")
+        double residual;
+
+        void finish(String solver, int level, int iteration, long statesTouched, double residual){
+            end();
+            if(!shouldCommit())
+                return;
+
+            this.solver = solver;
+            this.level = level;
+            this.iteration = iteration;
+            this.statesTouched = statesTouched;
+            this.residual = residual;
+            commit();
+        }
+    }
+
+    @Name("tabular.EpisodeBatch")
+    @Label("Episode Batch")
+    @Category("Tabular RL")
+    @Description("A batch of consecutive Q-learning episodes of one actor, including the queries answered after them")
+    @StackTrace(false)
+    static class EpisodeBatchEvent extends Event {
+
+        @Label("First Episode")
+        int firstEpisode;
+
+        @Label("Episodes")
+        int episodes;
+
+        @Label("Steps")
+        long steps;
+
+        void finish(int firstEpisode, int episodes, long steps){
+            end();
+            if(!shouldCommit())
+                return;
+
+            this.firstEpisode = firstEpisode;
+            this.episodes = episodes;
+            this.steps = steps;
+            commit();
+        }
+    }
+
+    @Name("tabular.SnapshotCapture")
+    @Label("Snapshot Capture")
+    @Category("Tabular RL")
+    @Description("Copying a table for the solution cache or writing a history keyframe")
+    static class SnapshotCaptureEvent extends Event {
+
+        @Label("Kind")
+        String kind;
+
+        @Label("Step")
+        @Description("Step of the captured table, -1 when a whole cache entry is written")
+        int step;
+
+        @Label("Table Size")
+        long tableSize;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytes;
+
+        void finish(String kind, int step, long tableSize, long bytes){
+            end();
+            if(!shouldCommit())
+                return;
+
+            this.kind = kind;
+            this.step = step;
+            this.tableSize = tableSize;
+            this.bytes = bytes;
+            commit();
+        }
+    }
+
+    @Name("tabular.OutputFlush")
+    @Label("Output Flush")
+    @Category("Tabular RL")
+    @Description("Buffered results written to the output stream")
+    @StackTrace(false)
+    static class OutputFlushEvent extends Event {
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytes;
+
+        @Label("Total Bytes")
+        @DataAmount
+        long totalBytes;
+
+        void finish(long bytes, long totalBytes){
+            end();
+            if(!shouldCommit())
+                return;
+
+            this.bytes = bytes;
+            this.totalBytes = totalBytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * MDP solvers
+ * **/
+
+//Enum of the MDP solvers
+enum SolverMode {
+    JACOBI,
+    GAUSS_SEIDEL,
+    PRIORITIZED,
+    POLICY_ITERATION,
+    EXACT, //policy iteration with exact evaluation to a tight tolerance
+    MULTIGRID;
+
+    //parse a solver name from the configuration, e.g. "GaussSeidel" or "gauss_seidel"
+    static SolverMode fromConfig(String name){
+        var key = name.trim().replace("_", "").replace("-", "").toLowerCase();
+        for(var mode : values())
+            if(mode.name().replace("_", "").toLowerCase().equals(key))
+                return mode;
+        throw new IllegalArgumentException("Unknown solver: " + name);
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Q-table allocated on first touch
+ * **/
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+//A Q-table split into pages of PAGE_SIDE x PAGE_SIDE cells, each page allocated the first time
+//one of its values is written. Reads of a page that was never written return 0 without allocating,
+//so memory follows the part of the map an agent explores rather than the size of the map.
+//Square pages keep the cells around a visited cell in the same page.
+//Pages are installed with a compare-and-set, so actors sharing the table never lose a page,
+//and updateAtomically is a compare-and-set on the page like the dense table's.
+class SparseQTable extends QTable {
+
+    static final int PAGE_SIDE = 16;
+    static final int PAGE_STATES = PAGE_SIDE * PAGE_SIDE;
+
+    private static final VarHandle PAGE = MethodHandles.arrayElementVarHandle(double[][].class);
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(double[].class);
+
+    private final int pageColumns;
+    private final double[][] pages;
+
+    public SparseQTable(TransitionModel model){
+        super(model);
+        pageColumns = (model.cols + PAGE_SIDE - 1) / PAGE_SIDE;
+        pages = new double[((model.rows + PAGE_SIDE - 1) / PAGE_SIDE) * pageColumns][];
+    }
+
+    //the page holding a state
+    private int page(int state){
+        int row = state / model.cols;
+        int col = state - row*model.cols;
+        return (row / PAGE_SIDE)*pageColumns + col / PAGE_SIDE;
+    }
+
+    //the index of the first action of a state within its page
+    private int offset(int state){
+        int row = state / model.cols;
+        int col = state - row*model.cols;
+        return ((row % PAGE_SIDE)*PAGE_SIDE + col % PAGE_SIDE) * TransitionModel.ACTIONS;
+    }
+
+    //the page holding a state, allocated if it does not exist yet
+    private double[] touch(int state){
+        var index = page(state);
+        var page = (double[]) PAGE.getAcquire(pages, index);
+        if(page != null)
+            return page;
+
+        var fresh = new double[PAGE_STATES * TransitionModel.ACTIONS];
+        var installed = (double[]) PAGE.compareAndExchange(pages, index, null, fresh);
+        return installed == null ? fresh : installed;
+    }
+
+    @Override
+    public double get(int state, int action){
+        var page = (double[]) PAGE.getAcquire(pages, page(state));
+        return page == null ? 0 : page[offset(state) + action];
+    }
+
+    @Override
+    public void set(int state, int action, double value){
+        touch(state)[offset(state) + action] = value;
+    }
+
+    @Override
+    public void updateAtomically(int state, int action, double alpha, double sample){
+        var page = touch(state);
+        int slot = offset(state) + action;
+        double current;
+        do {
+            current = (double) SLOT.getVolatile(page, slot);
+        } while(!SLOT.compareAndSet(page, slot, current, (1-alpha)*current + alpha*sample));
+    }
+
+    @Override
+    public QTable cpy(){
+        var copy = new SparseQTable(model);
+        for(int p = 0; p < pages.length; p++)
+            if(pages[p] != null)
+                copy.pages[p] = pages[p].clone();
+        return copy;
+    }
+
+    @Override
+    public double[] toArray(){
+        var values = new double[model.states * TransitionModel.ACTIONS];
+        for(int s = 0; s < model.states; s++){
+            var page = pages[page(s)];
+            if(page != null)
+                System.arraycopy(page, offset(s), values, s*TransitionModel.ACTIONS, TransitionModel.ACTIONS);
+        }
+        return values;
+    }
+
+    //the number of pages allocated so far
+    public int allocatedPages(){
+        int count = 0;
+        for(var page : pages)
+            if(page != null)
+                count++;
+        return count;
+    }
+
+    //the number of pages covering the grid
+    public int pageCount(){
+        return pages.length;
+    }
+}
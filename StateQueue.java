@@ -0,0 +1,91 @@
+/**
+ * Priority queue of states
+ * **/
+
+import java.util.Arrays;
+
+//An indexed binary max-heap of states keyed on a double priority.
+//Every state is in the queue at most once and its priority can be raised in place,
+//all storage is preallocated primitive arrays.
+class StateQueue {
+
+    private final double[] priority;
+    private final int[] heap;
+    private final int[] position; //index of a state in the heap, -1 when it is not queued
+    private int size = 0;
+
+    public StateQueue(int states){
+        priority = new double[states];
+        heap = new int[states];
+        position = new int[states];
+        Arrays.fill(position, -1);
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    //queue a state or change the priority of a queued state
+    public void update(int state, double value){
+        if(position[state] < 0){
+            position[state] = size;
+            heap[size++] = state;
+            priority[state] = value;
+            siftUp(position[state]);
+        }
+        else if(value > priority[state]){
+            priority[state] = value;
+            siftUp(position[state]);
+        }
+        else{
+            priority[state] = value;
+            siftDown(position[state]);
+        }
+    }
+
+    //remove and return the state with the highest priority
+    public int poll(){
+        int top = heap[0];
+        position[top] = -1;
+        size--;
+
+        if(size > 0){
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i){
+        int state = heap[i];
+        while(i > 0){
+            int parent = (i - 1) / 2;
+            if(priority[heap[parent]] >= priority[state])
+                break;
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = state;
+        position[state] = i;
+    }
+
+    private void siftDown(int i){
+        int state = heap[i];
+        while(true){
+            int child = 2*i + 1;
+            if(child >= size)
+                break;
+            if(child + 1 < size && priority[heap[child + 1]] > priority[heap[child]])
+                child++;
+            if(priority[heap[child]] <= priority[state])
+                break;
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = state;
+        position[state] = i;
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Sweep orders
+ * **/
+
+//Enum of the state orders of an in-place sweep
+enum SweepOrder {
+    ROW_MAJOR,
+    REVERSE,
+    ALTERNATING; //row major on even sweeps and reversed on odd sweeps
+
+    //parse a sweep order from the configuration, e.g. "RowMajor" or "row_major"
+    static SweepOrder fromConfig(String name){
+        var key = name.trim().replace("_", "").replace("-", "").toLowerCase();
+        for(var order : values())
+            if(order.name().replace("_", "").toLowerCase().equals(key))
+                return order;
+        throw new IllegalArgumentException("Unknown sweep order: " + name);
+    }
+}
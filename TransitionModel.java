@@ -0,0 +1,332 @@
+/**
+ * Transition model of the grid problem
+ * **/
+
+import java.util.Arrays;
+
+//The dynamics of the grid problem, computed on demand from a bitmap of the cells.
+//States are numbered row*horizontal+col. An action has three outcomes, forward, right and left
+//like movementSquares, each moving one cell in a fixed direction or staying put when a wall or
+//boulder is in the way, so the successors of a state follow from which of its four neighbours
+//are open and nothing is stored per (state, action, outcome).
+//When two outcomes stay put their probability is merged into the first of them.
+//Boulders and terminals are one bit per cell and terminal values are kept per terminal, so the
+//model of a text configuration costs a quarter of a byte per cell. A binary map is read in place,
+//its rewards and terminal values come from the mapped planes.
+//The successors and merged probabilities only depend on which neighbours are open, so they are
+//computed once for each of the 16 patterns of open neighbours. Up to TABLE_STATES states the
+//pattern of every state is kept in a byte as well, which saves finding it from the bitmap in
+//every backup; a sweep takes about 16 ns a state with it and 20 ns without, against 14 ns for
+//the per-(state, action, outcome) tables this model replaced, which cost 157 bytes a state.
+class TransitionModel {
+
+    static final int ACTIONS = 4;
+    static final int OUTCOMES = 3;
+    static final int STRIDE = ACTIONS * OUTCOMES;
+
+    //most states whose open neighbours are kept in a table, a byte each
+    static final int TABLE_STATES = 1 << 26;
+
+    //direction of the forward, right and left outcome of every action, as Direction ordinals
+    static final int[][] MOVE = {{0, 1, 2}, {1, 3, 0}, {2, 0, 3}, {3, 2, 1}};
+
+    //row and column offsets of a move in each direction, indexed by Direction ordinal
+    private static final int[] ROW_OFFSET = {-1, 0, 0, 1};
+    private static final int[] COL_OFFSET = {0, 1, -1, 0};
+
+    final int rows;
+    final int cols;
+    final int states;
+    final double discount;
+
+    //probability of the forward, right and left outcome before merging
+    private final double[] outcomeProbability;
+
+    //index offset of a move in each direction
+    private final int[] step;
+
+    //per pattern of open directions and action, indexed (open*ACTIONS + action)*OUTCOMES + outcome,
+    //the index offset of every outcome and its probability after merging
+    private final int[] patternOffset = new int[16 * STRIDE];
+    private final double[] patternProbability = new double[16 * STRIDE];
+
+    //the open directions of every state, null above TABLE_STATES where they come from the bitmap
+    private final byte[] openTable;
+
+    //one bit per state
+    private final long[] boulders;
+    private final long[] terminals;
+
+    //terminals of the coordinate lists in increasing state order and their values
+    private final int[] terminalState;
+    private final double[] terminalStateValue;
+
+    //the reward of entering a cell without a map, and the map holding per-cell rewards
+    private final double transitionCost;
+    private final GridMap map;
+
+    public TransitionModel(Problem problem){
+        if((long) problem.vertical * problem.horizontal > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("a grid of " + problem.vertical + "x" + problem.horizontal + " has too many states");
+
+        rows = problem.vertical;
+        cols = problem.horizontal;
+        states = rows * cols;
+        discount = problem.discount;
+        transitionCost = problem.transitionCost;
+        map = problem.map;
+
+        outcomeProbability = new double[]{1.0 - problem.noise, problem.noise/2, problem.noise/2};
+        step = new int[ACTIONS];
+        for(int d = 0; d < ACTIONS; d++)
+            step[d] = ROW_OFFSET[d]*cols + COL_OFFSET[d];
+
+        boulders = new long[(states + 63) >>> 6];
+        terminals = new long[(states + 63) >>> 6];
+
+        if(map != null)
+            readMap(map);
+
+        //sorted by state, a later entry of the same cell wins like it did when the lists were written into arrays
+        var listed = new int[problem.terminalStates.size()][];
+        int count = 0;
+        for(var terminal : problem.terminalStates){
+            listed[count++] = new int[]{state(terminal[0], terminal[1]), terminal[2]};
+            set(terminals, state(terminal[0], terminal[1]));
+        }
+        Arrays.sort(listed, (a, b) -> Integer.compare(a[0], b[0]));
+
+        count = 0;
+        for(int i = 0; i < listed.length; i++)
+            if(i + 1 == listed.length || listed[i + 1][0] != listed[i][0])
+                listed[count++] = listed[i];
+        terminalState = new int[count];
+        terminalStateValue = new double[count];
+        for(int i = 0; i < count; i++){
+            terminalState[i] = listed[i][0];
+            terminalStateValue[i] = listed[i][1];
+        }
+
+        for(var boulder : problem.boulderStates)
+            set(boulders, state(boulder[0], boulder[1]));
+
+        //the successors of state 0 are the offsets of the successors of any state
+        var next = new int[OUTCOMES];
+        var probability = new double[OUTCOMES];
+        for(int open = 0; open < 16; open++)
+            for(int a = 0; a < ACTIONS; a++){
+                outcomes(0, open, a, next, probability);
+                for(int o = 0; o < OUTCOMES; o++){
+                    patternOffset[(open*ACTIONS + a)*OUTCOMES + o] = next[o];
+                    patternProbability[(open*ACTIONS + a)*OUTCOMES + o] = probability[o];
+                }
+            }
+
+        if(states <= TABLE_STATES){
+            openTable = new byte[states];
+            for(int s = 0; s < states; s++)
+                openTable[s] = (byte) openBits(s);
+        }
+        else
+            openTable = null;
+    }
+
+    //fill the cell bitmaps from the cell plane of a binary map
+    private void readMap(GridMap map){
+        for(int s = 0; s < states; s++){
+            byte type = map.cellType(s);
+
+            if(type == GridMap.BOULDER)
+                set(boulders, s);
+            else if(type == GridMap.TERMINAL)
+                set(terminals, s);
+        }
+    }
+
+    private static void set(long[] bits, int state){
+        bits[state >>> 6] |= 1L << state;
+    }
+
+    private static boolean get(long[] bits, int state){
+        return (bits[state >>> 6] & (1L << state)) != 0;
+    }
+
+    //index of a grid location
+    int state(int row, int col){
+        return row*cols + col;
+    }
+
+    //index offset from a state to the cell an outcome of an action moves into when it is not blocked
+    int offset(int action, int outcome){
+        return step[MOVE[action][outcome]];
+    }
+
+    //probability of an outcome of an action before outcomes that stay put are merged
+    double outcomeProbability(int outcome){
+        return outcomeProbability[outcome];
+    }
+
+    boolean isTerminal(int state){
+        return get(terminals, state);
+    }
+
+    boolean isBoulder(int state){
+        return get(boulders, state);
+    }
+
+    //check if a state keeps its value forever, i.e. it is a terminal or a boulder
+    boolean isFixed(int state){
+        return isTerminal(state) || isBoulder(state);
+    }
+
+    //the value of a terminal, 0 for any other state
+    double terminalValue(int state){
+        if(!isTerminal(state))
+            return 0;
+        var at = Arrays.binarySearch(terminalState, state);
+        if(at >= 0)
+            return terminalStateValue[at];
+        return map.reward(state);
+    }
+
+    //the reward of moving into a state, the transition cost unless a map gives the cell its own
+    double reward(int state){
+        if(map == null || map.cellType(state) != GridMap.OPEN)
+            return transitionCost;
+        return map.reward(state);
+    }
+
+    //check if every cell has the same reward, the transition cost
+    boolean hasUniformReward(){
+        return map == null;
+    }
+
+    /**
+     * The directions a state can move in, i.e. its neighbours that are on the grid and not boulders
+     * input: the state
+     * output: a bit per Direction ordinal, set when the neighbour in that direction is open
+     * **/
+    int openDirections(int state){
+        if(openTable != null)
+            return openTable[state];
+        return openBits(state);
+    }
+
+    //the open directions of a state from the boulder bitmap
+    private int openBits(int state){
+        int row = state / cols;
+        int col = state - row*cols;
+        int open = 0;
+
+        if(row > 0 && !isBoulder(state - cols))
+            open |= 1;
+        if(col < cols - 1 && !isBoulder(state + 1))
+            open |= 2;
+        if(col > 0 && !isBoulder(state - 1))
+            open |= 4;
+        if(row < rows - 1 && !isBoulder(state + cols))
+            open |= 8;
+        return open;
+    }
+
+    /**
+     * The successors of doing an action in a state and their probabilities,
+     * an outcome that stays put where an earlier one did has its probability merged into that one and gets 0
+     * input:
+     * the state and the action
+     * arrays of OUTCOMES slots filled with the successors and their probabilities
+     * **/
+    void outcomes(int state, int action, int[] next, double[] probability){
+        var at = (openDirections(state)*ACTIONS + action)*OUTCOMES;
+        for(int o = 0; o < OUTCOMES; o++){
+            next[o] = state + patternOffset[at + o];
+            probability[o] = patternProbability[at + o];
+        }
+    }
+
+    //the outcomes of an action given the open directions of the state, the patterns are built with it
+    private void outcomes(int state, int open, int action, int[] next, double[] probability){
+        for(int o = 0; o < OUTCOMES; o++){
+            var direction = MOVE[action][o];
+            next[o] = (open & (1 << direction)) != 0 ? state + step[direction] : state;
+            probability[o] = outcomeProbability[o];
+        }
+
+        //merge into the first outcome that lands on the same cell
+        if(next[1] == next[0]){
+            probability[0] += probability[1];
+            probability[1] = 0;
+        }
+        if(next[2] == next[0]){
+            probability[0] += probability[2];
+            probability[2] = 0;
+        }
+        else if(next[2] == next[1]){
+            probability[1] += probability[2];
+            probability[2] = 0;
+        }
+    }
+
+    //expected value of doing an action in a state given a table of state values
+    double actionValue(ValueTable values, int state, int action){
+        return actionValue(values, state, openDirections(state), action);
+    }
+
+    private double actionValue(ValueTable values, int state, int open, int action){
+        var at = (open*ACTIONS + action)*OUTCOMES;
+        var p0 = patternProbability[at];
+        var p1 = patternProbability[at + 1];
+        var p2 = patternProbability[at + 2];
+        var n0 = state + patternOffset[at];
+        var n1 = state + patternOffset[at + 1];
+        var n2 = state + patternOffset[at + 2];
+
+        double value = 0;
+        value += p0*(reward(n0) + discount*values.get(n0));
+        value += p1*(reward(n1) + discount*values.get(n1));
+        value += p2*(reward(n2) + discount*values.get(n2));
+        return value;
+    }
+
+    //the highest action value of a state, the same max as computeActionFromValues
+    double bestValue(ValueTable values, int state){
+        var open = openDirections(state);
+        double value = Double.NEGATIVE_INFINITY;
+
+        for(int a = 0; a < ACTIONS; a++){
+            double moveValue = actionValue(values, state, open, a);
+            if(moveValue > value)
+                value = moveValue;
+        }
+        return value;
+    }
+
+    //the highest value action of a state, ties go to the first action like computeActionFromValues
+    int bestAction(ValueTable values, int state){
+        var open = openDirections(state);
+        double value = Double.NEGATIVE_INFINITY;
+        int action = 0;
+
+        for(int a = 0; a < ACTIONS; a++){
+            double moveValue = actionValue(values, state, open, a);
+            if(moveValue > value){
+                value = moveValue;
+                action = a;
+            }
+        }
+        return action;
+    }
+
+    //sample the successor of doing an action in a state from a uniform random value in [0,1)
+    int sample(int state, int action, double randomValue){
+        var at = (openDirections(state)*ACTIONS + action)*OUTCOMES;
+
+        double cumulative = patternProbability[at];
+        if(randomValue < cumulative)
+            return state + patternOffset[at];
+        cumulative += patternProbability[at + 1];
+        if(randomValue < cumulative)
+            return state + patternOffset[at + 1];
+        return state + patternOffset[at + 2];
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Value iteration over primitive value tables
+ * **/
+
+//Synchronous (Jacobi) value iteration.
+//Keeps two preallocated value buffers and swaps them after every sweep,
+//so a sweep reads only the previous iteration and allocates nothing.
+//The buffers are ValueTables on the heap, or in an OffHeapArena so the value tables of a huge
+//grid add nothing to the heap; off-heap tables are swept by the scalar kernel.
+class ValueIteration {
+
+    //tolerance used by the solvers that always run to convergence when no epsilon is configured
+    static final double DEFAULT_EPSILON = 1e-6;
+
+    final TransitionModel model;
+
+    //number of state backups done so far
+    long backups = 0;
+
+    private ValueTable values;
+    private ValueTable next;
+
+    //states that are neither terminals nor boulders, only these are backed up
+    final int movableStates;
+
+    //backs up ranges of states for the synchronous sweeps, built by the first of them
+    //so in-place sweeps never pay for it
+    private BackupKernel kernel;
+
+    public ValueIteration(TransitionModel model){
+        this(model, null);
+    }
+
+    //input: the model, the arena holding the value buffers, null keeps them on the heap
+    public ValueIteration(TransitionModel model, OffHeapArena arena){
+        this.model = model;
+        values = ValueTable.allocate(model.states, arena);
+        next = ValueTable.allocate(model.states, arena);
+
+        int movable = 0;
+        for(int s = 0; s < model.states; s++){
+            if(!model.isFixed(s))
+                movable++;
+            if(model.isTerminal(s)){
+                values.set(s, model.terminalValue(s));
+                next.set(s, model.terminalValue(s));
+            }
+        }
+        movableStates = movable;
+    }
+
+    //run one synchronous sweep over every state
+    //returns the max-norm Bellman residual of the sweep
+    public double sweep(){
+        kernel();
+        var residual = sweep(0, model.states);
+        swap();
+        backups += movableStates;
+        return residual;
+    }
+
+    //back up the states in [from, to) from the current buffer into the next buffer
+    //ranges do not share any state, so disjoint ranges can be swept concurrently
+    //returns the largest change of a state value in the range
+    //call kernel() first, the ranges of a concurrent sweep must not race to build it
+    double sweep(int from, int to){
+        return kernel.sweep(values, next, from, to);
+    }
+
+    //the kernel of the synchronous sweeps, built on first use
+    BackupKernel kernel(){
+        if(kernel == null)
+            kernel = BackupKernel.create(model, values);
+        return kernel;
+    }
+
+    //run one in-place (Gauss-Seidel) sweep, later states see the values already updated this sweep
+    //input: the order states are visited in and the index of the sweep
+    //returns the max-norm Bellman residual of the sweep
+    public double sweepInPlace(SweepOrder order, int iteration){
+        var forward = order == SweepOrder.ROW_MAJOR || (order == SweepOrder.ALTERNATING && iteration % 2 == 0);
+        double residual = 0;
+
+        for(int i = 0; i < model.states; i++){
+            int s = forward ? i : model.states - 1 - i;
+            if(!model.isFixed(s)){
+                var value = model.bestValue(values, s);
+                residual = Math.max(residual, Math.abs(value - values.get(s)));
+                values.set(s, value);
+            }
+        }
+        backups += movableStates;
+        return residual;
+    }
+
+    //the residual below which the greedy policy is within epsilon of optimal
+    //this is the standard bound eps*(1-discount)/(2*discount), which is 0 without discounting,
+    //so an undiscounted problem stops once the residual itself is within epsilon
+    public static double stoppingResidual(double epsilon, double discount){
+        if(discount >= 1)
+            return epsilon;
+        return epsilon*(1-discount)/(2*discount);
+    }
+
+    //start from a given value table instead of zeros, e.g. the values of a similar problem
+    //terminal and boulder states keep their own values
+    void start(double[] initial){
+        for(int s = 0; s < model.states; s++)
+            if(!model.isFixed(s)){
+                values.set(s, initial[s]);
+                next.set(s, initial[s]);
+            }
+    }
+
+    //make the next buffer the current one
+    void swap(){
+        var tmp = values;
+        values = next;
+        next = tmp;
+    }
+
+    //the current value table, indexed by state
+    public ValueTable values(){
+        return values;
+    }
+
+    //the current value of a state
+    public double value(int state){
+        return values.get(state);
+    }
+
+    //the greedy action of a state under the current values
+    public Direction bestAction(int state){
+        return Direction.values()[model.bestAction(values, state)];
+    }
+}
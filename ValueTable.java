@@ -0,0 +1,73 @@
+/**
+ * Value tables
+ * **/
+
+//One double per state, in a heap array or in an OffHeapArena as OffHeapDoubles.
+//Value iteration and the helpers of the transition model read and write values through this
+//interface, so a solver runs the same whichever kind of table it was given.
+interface ValueTable {
+
+    double get(long state);
+
+    void set(long state, double value);
+
+    //copy every value into a heap array of the same size
+    double[] toArray();
+
+    //the heap array holding the values, null for a table off the heap
+    default double[] array(){
+        return null;
+    }
+
+    //the values as a heap array, the table's own array when it has one and a copy otherwise
+    default double[] heap(){
+        var array = array();
+        return array != null ? array : toArray();
+    }
+
+    /**
+     * Allocate a table
+     * input:
+     * the number of values
+     * the arena holding the table, null keeps it on the heap
+     * output: the table, every value is 0
+     * **/
+    static ValueTable allocate(int size, OffHeapArena arena){
+        return arena == null ? new HeapValueTable(new double[size]) : arena.allocate(size);
+    }
+
+    //a table over a heap array, writes go to the array
+    static ValueTable of(double[] values){
+        return new HeapValueTable(values);
+    }
+}
+
+//A value table in a heap array
+class HeapValueTable implements ValueTable {
+
+    private final double[] values;
+
+    HeapValueTable(double[] values){
+        this.values = values;
+    }
+
+    @Override
+    public double get(long state){
+        return values[(int) state];
+    }
+
+    @Override
+    public void set(long state, double value){
+        values[(int) state] = value;
+    }
+
+    @Override
+    public double[] toArray(){
+        return values.clone();
+    }
+
+    @Override
+    public double[] array(){
+        return values;
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * SIMD Bellman backup kernel
+ * compile and run with --add-modules jdk.incubator.vector, otherwise the scalar kernel is used
+ * **/
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+//Backs up a lane of consecutive states at once with the Vector API.
+//Every outcome of the grid moves to the neighbour in a fixed direction or stays put when that
+//neighbour is a wall or boulder, so the kernel keeps one packed bit per state and direction
+//saying the move is blocked, plus a bit per state for terminals and boulders.
+//A lane loads the values at the neighbour offset of an outcome and blends in its own values
+//where the move is blocked, and loads the rewards the same way, so there is no gather through a
+//successor table. The merged probabilities of an action follow from which of its outcomes are
+//blocked, like TransitionModel.outcomes merges them, and each lane sums and maxes in the same
+//order as the scalar kernel, so the result is bit-identical.
+//The first and last row are backed up by the scalar code, so every neighbour load stays inside
+//the value table. The model costs 5 bits per state, plus a reward per state with a binary map,
+//and is built by the first synchronous sweep of a ValueIteration.
+class VectorBackupKernel implements BackupKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LANE_SPECIES = LongVector.SPECIES_PREFERRED;
+
+    //bit i set in lane i, to turn the packed bits of a lane into a mask
+    private static final LongVector LANE_BITS = LongVector.broadcast(LANE_SPECIES, 1)
+            .lanewise(VectorOperators.LSHL, LongVector.zero(LANE_SPECIES).addIndex(1));
+
+    private final TransitionModel model;
+
+    //one bit per state
+    private final long[] fixed;
+    //indexed by Direction ordinal, one bit per state
+    private final long[][] blocked;
+
+    //index offset of a move in each direction
+    private final int[] offset;
+
+    //the reward of entering each state, read at state*rewardStride
+    //when every state has the transition cost it is one vector of it read with a stride of 0,
+    //so both cases load rewards the same way and the loop has no branch on it
+    private final double[] reward;
+    private final int rewardStride;
+
+    //the probability of the forward, right and left outcome, and their sums when outcomes merge
+    private final double p0, p1, p2, p01, p02, p012, p12;
+
+    public VectorBackupKernel(TransitionModel model){
+        this.model = model;
+        p0 = model.outcomeProbability(0);
+        p1 = model.outcomeProbability(1);
+        p2 = model.outcomeProbability(2);
+        //summed in the order TransitionModel.outcomes merges them
+        p01 = p0 + p1;
+        p02 = p0 + p2;
+        p012 = p01 + p2;
+        p12 = p1 + p2;
+
+        var words = (model.states + 63) >>> 6;
+        fixed = new long[words];
+        blocked = new long[TransitionModel.ACTIONS][words];
+
+        //the forward outcome of each action moves in the direction of the same ordinal
+        offset = new int[TransitionModel.ACTIONS];
+        for(int d = 0; d < TransitionModel.ACTIONS; d++)
+            offset[d] = model.offset(d, 0);
+
+        for(int s = 0; s < model.states; s++){
+            if(model.isFixed(s))
+                fixed[s >>> 6] |= 1L << s;
+
+            var open = model.openDirections(s);
+            for(int d = 0; d < TransitionModel.ACTIONS; d++)
+                if((open & (1 << d)) == 0)
+                    blocked[d][s >>> 6] |= 1L << s;
+        }
+
+        if(model.hasUniformReward()){
+            reward = new double[SPECIES.length()];
+            Arrays.fill(reward, model.states > 0 ? model.reward(0) : 0);
+            rewardStride = 0;
+        }
+        else {
+            reward = new double[model.states];
+            for(int s = 0; s < model.states; s++)
+                reward[s] = model.reward(s);
+            rewardStride = 1;
+        }
+    }
+
+    //the mask of the lanes of a vector starting at a state whose bit is set
+    //a lane keeps only its own bit, which read as a double is a positive subnormal or 0, so the mask
+    //comes from a compare of doubles instead of a cast of a long mask, which C2 does not intrinsify
+    private static VectorMask<Double> mask(long[] bits, int state){
+        return LongVector.broadcast(LANE_SPECIES, bits(bits, state)).and(LANE_BITS)
+                .reinterpretAsDoubles().compare(VectorOperators.NE, 0);
+    }
+
+    //the bits of states [state, state + 64), the lanes of a vector starting at the state
+    private static long bits(long[] bits, int state){
+        var word = state >>> 6;
+        var shift = state & 63;
+        var lanes = bits[word] >>> shift;
+        if(shift != 0 && word + 1 < bits.length)
+            lanes |= bits[word + 1] << (64 - shift);
+        return lanes;
+    }
+
+    //the tables must be on the heap, BackupKernel.create only gives this kernel heap tables
+    @Override
+    public double sweep(ValueTable valueTable, ValueTable nextTable, int from, int to){
+        var values = valueTable.array();
+        var next = nextTable.array();
+        var vectorFrom = Math.max(from, model.cols);
+        var vectorTo = Math.min(to, model.states - model.cols);
+        var vectorEnd = vectorTo > vectorFrom ? vectorFrom + (vectorTo - vectorFrom) / SPECIES.length() * SPECIES.length() : vectorFrom;
+
+        var result = scalarSweep(valueTable, next, from, Math.min(to, vectorFrom));
+
+        //one pass per action keeping the max in the next values, a loop over all four at once is
+        //too big for C2 to keep its vectors in registers
+        Arrays.fill(next, vectorFrom, vectorEnd, Double.NEGATIVE_INFINITY);
+        for(int a = 0; a < TransitionModel.ACTIONS; a++)
+            actionPass(values, next, vectorFrom, vectorEnd, TransitionModel.MOVE[a]);
+
+        //terminals and boulders keep their value
+        var residual = DoubleVector.zero(SPECIES);
+        for(int s = vectorFrom; s < vectorEnd; s += SPECIES.length()){
+            var current = DoubleVector.fromArray(SPECIES, values, s);
+            var updated = DoubleVector.fromArray(SPECIES, next, s).blend(current, mask(fixed, s));
+
+            updated.intoArray(next, s);
+            residual = residual.max(updated.sub(current).abs());
+        }
+
+        result = Math.max(result, residual.reduceLanes(VectorOperators.MAX));
+        return Math.max(result, scalarSweep(valueTable, next, vectorEnd, to));
+    }
+
+    /**
+     * Raise the next values of the lanes in [from, to) to the value of an action where it is higher
+     * input: the directions of the forward, right and left outcome of the action
+     * **/
+    private void actionPass(double[] values, double[] next, int from, int to, int[] move){
+        var blocked0 = blocked[move[0]];
+        var blocked1 = blocked[move[1]];
+        var blocked2 = blocked[move[2]];
+
+        for(int s = from; s < to; s += SPECIES.length()){
+            var current = DoubleVector.fromArray(SPECIES, values, s);
+            var currentReward = DoubleVector.fromArray(SPECIES, reward, s * rewardStride);
+            var stays0 = mask(blocked0, s);
+            var stays1 = mask(blocked1, s);
+            var stays2 = mask(blocked2, s);
+
+            var value = actionValue(stays0.and(stays1), stays0.and(stays2), stays1.and(stays2),
+                    target(values, s, move[0], stays0, current, currentReward),
+                    target(values, s, move[1], stays1, current, currentReward),
+                    target(values, s, move[2], stays2, current, currentReward));
+            DoubleVector.fromArray(SPECIES, next, s).max(value).intoArray(next, s);
+        }
+    }
+
+    //r + discount*v of moving in a direction from a lane, the lane's own reward and value where the move is blocked
+    private DoubleVector target(double[] values, int state, int direction, VectorMask<Double> stays,
+                                DoubleVector current, DoubleVector currentReward){
+        var successorValue = DoubleVector.fromArray(SPECIES, values, state + offset[direction]).blend(current, stays);
+        var successorReward = DoubleVector.fromArray(SPECIES, reward, (state + offset[direction]) * rewardStride)
+                .blend(currentReward, stays);
+        return successorReward.add(successorValue.mul(model.discount));
+    }
+
+    /**
+     * The value of an action, merging the probabilities of outcomes that stay put like TransitionModel.outcomes
+     * input: the lanes where the forward and right, forward and left, and right and left outcome both stay put,
+     * and the targets of the forward, right and left outcome
+     * **/
+    private DoubleVector actionValue(VectorMask<Double> merged01, VectorMask<Double> merged02, VectorMask<Double> both12,
+                                     DoubleVector t0, DoubleVector t1, DoubleVector t2){
+        //where the forward outcome also stays put right and left merge into it, not into each other,
+        //both12 is only used where merged01 or merged02 overrides it in that case
+        var q0 = DoubleVector.broadcast(SPECIES, p0).blend(p01, merged01).blend(p02, merged02)
+                .blend(p012, merged01.and(merged02));
+        var q1 = DoubleVector.broadcast(SPECIES, p1).blend(p12, both12).blend(0, merged01);
+        var q2 = DoubleVector.broadcast(SPECIES, p2).blend(0, merged02).blend(0, both12);
+
+        var value = DoubleVector.zero(SPECIES).add(q0.mul(t0));
+        value = value.add(q1.mul(t1));
+        return value.add(q2.mul(t2));
+    }
+
+    //back up the states in [from, to) one at a time
+    private double scalarSweep(ValueTable values, double[] next, int from, int to){
+        double residual = 0;
+
+        for(int s = from; s < to; s++)
+            if((fixed[s >>> 6] & (1L << s)) == 0){
+                next[s] = model.bestValue(values, s);
+                residual = Math.max(residual, Math.abs(next[s] - values.get(s)));
+            }
+        return residual;
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Handles to the solver
+ * **/
+
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+
+//The solver lives in the default package, which a named package cannot import, and JMH does not
+//allow benchmarks in the default package. Its methods are looked up once by reflection instead,
+//with every class of the solver erased to Object. The handles are static finals, so the JIT
+//treats them as constants and a call costs the same as calling the method directly.
+final class Handles {
+
+    static final MethodHandle GET_GRID_PROBLEM = method("A3", "getGridProblem", "java.lang.String");
+    static final MethodHandle LOAD_PROBLEM = method("A3", "loadProblem", "Problem");
+    static final MethodHandle CONSTRUCT_MDP = method("A3", "constructMDP");
+    static final MethodHandle CONSTRUCT_Q_LEARNING = method("A3", "constructQLearning");
+    static final MethodHandle ITERATE_GRID = method("A3", "iterateGrid", "[[LMDPTile;");
+    static final MethodHandle VALUE_OF_MOVE = method("A3", "valueOfMove", "int", "[[LMDPTile;", "Direction");
+    static final MethodHandle MDP_MOVEMENT_SQUARES = method("A3", "movementSquares", "[I", "[[LMDPTile;", "Direction");
+    static final MethodHandle Q_MOVEMENT_SQUARES = method("A3", "movementSquares", "[I", "[[LQTile;", "Direction");
+    static final MethodHandle UPDATE_Q_LEARNING = method("A3", "updateQLearning", "[[LQTile;");
+    static final MethodHandle GET_ACTION = method("QTile", "getAction");
+    static final MethodHandle CPY_Q_GRID = method("A3", "cpyQGrid", "[[LQTile;");
+
+    //the solvers run today, for a baseline next to the object grids
+    static final MethodHandle NEW_MODEL = constructor("TransitionModel", "Problem");
+    static final MethodHandle NEW_VALUE_ITERATION = constructor("ValueIteration", "TransitionModel");
+    static final MethodHandle SWEEP = method("ValueIteration", "sweep");
+    static final MethodHandle NEW_Q_LEARNING = constructor("QLearning", "TransitionModel", "Problem", "Rng");
+    static final MethodHandle RUN_EPISODE = method("QLearning", "runEpisode");
+    static final MethodHandle NEW_RNG = method("Rng", "create", "RngKind", "long");
+
+    //the four directions, in the order of the Direction enum
+    static final Object[] DIRECTIONS = type("Direction").getEnumConstants();
+
+    //a value of the RngKind enum by name
+    static Object rngKind(String name){
+        for(var kind : type("RngKind").getEnumConstants())
+            if(((Enum<?>) kind).name().equals(name))
+                return kind;
+        throw new IllegalArgumentException("Unknown rng: " + name);
+    }
+
+    private Handles(){
+    }
+
+    private static Class<?> type(String name){
+        try {
+            switch(name){
+                case "int": return int.class;
+                case "long": return long.class;
+                default: return Class.forName(name);
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("the solver is not on the classpath", e);
+        }
+    }
+
+    private static Class<?>[] types(String... names){
+        var types = new Class<?>[names.length];
+        for(int i = 0; i < names.length; i++)
+            types[i] = type(names[i]);
+        return types;
+    }
+
+    private static MethodHandle method(String owner, String name, String... parameters){
+        try {
+            Method method = type(owner).getDeclaredMethod(name, types(parameters));
+            return erase(MethodHandles.lookup().unreflect(accessible(method)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle constructor(String owner, String... parameters){
+        try {
+            Constructor<?> constructor = type(owner).getDeclaredConstructor(types(parameters));
+            return erase(MethodHandles.lookup().unreflectConstructor(accessible(constructor)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //the solver's classes are package-private
+    private static <T extends Executable> T accessible(T executable){
+        executable.setAccessible(true);
+        return executable;
+    }
+
+    //every class of the solver becomes Object, primitives are kept
+    private static MethodHandle erase(MethodHandle handle){
+        return handle.asType(handle.type().erase());
+    }
+}
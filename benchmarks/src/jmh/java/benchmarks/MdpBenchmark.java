@@ -0,0 +1,95 @@
+/**
+ * MDP hot paths
+ * **/
+
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+//Throughput of one value iteration step over the grid of MDP tiles, the move values and
+//movement squares it is built from, and a sweep of the primitive ValueIteration it was replaced by.
+//The per-state benchmarks visit SAMPLE random states per call and report operations per state.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MdpBenchmark {
+
+    static final int SAMPLE = 1024;
+
+    @Param({"5", "50", "500", "2000"})
+    public int size;
+
+    @Param({"0.0", "0.1", "0.3"})
+    public double density;
+
+    @Param({"0.0", "0.2"})
+    public double noise;
+
+    private Object grid;
+    private Object valueIteration;
+    private int[] states;
+    private int[][] locations;
+    private Object[] directions;
+
+    @Setup
+    public void setup() throws Throwable {
+        var problem = (Object) Handles.GET_GRID_PROBLEM.invokeExact((Object) SyntheticGrid.write(size, density, noise).toString());
+        Handles.LOAD_PROBLEM.invokeExact(problem);
+
+        grid = (Object) Handles.CONSTRUCT_MDP.invokeExact();
+        var model = (Object) Handles.NEW_MODEL.invokeExact(problem);
+        valueIteration = (Object) Handles.NEW_VALUE_ITERATION.invokeExact(model);
+
+        var random = new Random(size);
+        states = new int[SAMPLE];
+        locations = new int[SAMPLE][];
+        directions = new Object[SAMPLE];
+        for(int i = 0; i < SAMPLE; i++){
+            var row = random.nextInt(size);
+            var col = random.nextInt(size);
+            states[i] = row*size + col;
+            locations[i] = new int[]{row, col};
+            directions[i] = Handles.DIRECTIONS[random.nextInt(Handles.DIRECTIONS.length)];
+        }
+    }
+
+    //one synchronous sweep building a new grid of MDP tiles
+    @Benchmark
+    public Object iterateGrid() throws Throwable {
+        return (Object) Handles.ITERATE_GRID.invokeExact(grid);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE)
+    public double valueOfMove() throws Throwable {
+        double sum = 0;
+        for(int i = 0; i < SAMPLE; i++)
+            sum += (double) Handles.VALUE_OF_MOVE.invokeExact(states[i], grid, directions[i]);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE)
+    public void movementSquares(Blackhole blackhole) throws Throwable {
+        for(int i = 0; i < SAMPLE; i++)
+            blackhole.consume((Object) Handles.MDP_MOVEMENT_SQUARES.invokeExact((Object) locations[i], grid, directions[i]));
+    }
+
+    //one synchronous sweep of the primitive value tables
+    @Benchmark
+    public double valueIterationSweep() throws Throwable {
+        return (double) Handles.SWEEP.invokeExact(valueIteration);
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Configuration parsing
+ * **/
+
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+//Throughput of reading a grid configuration, which grows with the number of boulders and terminals listed
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParseBenchmark {
+
+    @Param({"5", "50", "500", "2000"})
+    public int size;
+
+    @Param({"0.0", "0.1", "0.3"})
+    public double density;
+
+    private Object path;
+
+    @Setup
+    public void setup(){
+        path = SyntheticGrid.write(size, density, 0.2).toString();
+    }
+
+    @Benchmark
+    public Object getGridProblem() throws Throwable {
+        return (Object) Handles.GET_GRID_PROBLEM.invokeExact(path);
+    }
+}
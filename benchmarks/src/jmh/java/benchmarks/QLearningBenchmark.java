@@ -0,0 +1,101 @@
+/**
+ * Q-learning hot paths
+ * **/
+
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+//Throughput of an episode on the grid of Q-tiles, the greedy action of a tile, copying the grid,
+//and an episode of the primitive QLearning it was replaced by.
+//Episodes keep learning on the same table, so later episodes follow a better policy;
+//terminals are placed densely enough that every episode stays short.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class QLearningBenchmark {
+
+    static final int SAMPLE = 1024;
+
+    @Param({"5", "50", "500", "2000"})
+    public int size;
+
+    @Param({"0.0", "0.1", "0.3"})
+    public double density;
+
+    @Param({"0.0", "0.2"})
+    public double noise;
+
+    private Object grid;
+    private Object learner;
+    private Object[] tiles;
+    private int[][] locations;
+    private Object[] directions;
+
+    @Setup
+    public void setup() throws Throwable {
+        var problem = (Object) Handles.GET_GRID_PROBLEM.invokeExact((Object) SyntheticGrid.write(size, density, noise).toString());
+        Handles.LOAD_PROBLEM.invokeExact(problem);
+
+        grid = (Object) Handles.CONSTRUCT_Q_LEARNING.invokeExact();
+        var model = (Object) Handles.NEW_MODEL.invokeExact(problem);
+        var rng = (Object) Handles.NEW_RNG.invokeExact(Handles.rngKind("SPLITTABLE"), 1L);
+        learner = (Object) Handles.NEW_Q_LEARNING.invokeExact(model, problem, rng);
+
+        var random = new Random(size);
+        var rows = (Object[]) grid;
+        tiles = new Object[SAMPLE];
+        locations = new int[SAMPLE][];
+        directions = new Object[SAMPLE];
+        for(int i = 0; i < SAMPLE; i++){
+            var row = random.nextInt(size);
+            var col = random.nextInt(size);
+            tiles[i] = ((Object[]) rows[row])[col];
+            locations[i] = new int[]{row, col};
+            directions[i] = Handles.DIRECTIONS[random.nextInt(Handles.DIRECTIONS.length)];
+        }
+    }
+
+    //one episode from the start state on the grid of Q-tiles
+    @Benchmark
+    public void updateQLearning() throws Throwable {
+        Handles.UPDATE_Q_LEARNING.invokeExact(grid);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE)
+    public void getAction(Blackhole blackhole) throws Throwable {
+        for(int i = 0; i < SAMPLE; i++)
+            blackhole.consume((Object) Handles.GET_ACTION.invokeExact(tiles[i]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE)
+    public void movementSquares(Blackhole blackhole) throws Throwable {
+        for(int i = 0; i < SAMPLE; i++)
+            blackhole.consume((Object) Handles.Q_MOVEMENT_SQUARES.invokeExact((Object) locations[i], grid, directions[i]));
+    }
+
+    @Benchmark
+    public Object cpyQGrid() throws Throwable {
+        return (Object) Handles.CPY_Q_GRID.invokeExact(grid);
+    }
+
+    //one episode from the start state on the primitive Q-table, returns its length
+    @Benchmark
+    public int qLearningEpisode() throws Throwable {
+        return (int) Handles.RUN_EPISODE.invokeExact(learner);
+    }
+}
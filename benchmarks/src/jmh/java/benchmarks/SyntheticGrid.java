@@ -0,0 +1,88 @@
+/**
+ * Synthetic grid problems
+ * **/
+
+package benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+//Writes the configuration of a square grid with boulders scattered at a given density.
+//One cell in TERMINAL_SPACING is a terminal so an episode ends within about that many steps
+//however large the grid is. The same size and density always give the same grid.
+final class SyntheticGrid {
+
+    static final int TERMINAL_SPACING = 100;
+
+    private SyntheticGrid(){
+    }
+
+    /**
+     * Write a grid configuration to a temporary file
+     * input:
+     * the side of the grid
+     * the fraction of cells that are boulders
+     * the noise of a move
+     * output: the configuration file, deleted when the JVM exits
+     * **/
+    static Path write(int size, double density, double noise){
+        var random = new Random(31L*size + Double.hashCode(density));
+        var cells = size*size;
+        var taken = new boolean[cells];
+        //the start cell stays open
+        taken[0] = true;
+
+        var terminals = new StringBuilder();
+        var count = Math.max(2, cells / TERMINAL_SPACING);
+        for(int i = 0; i < count && i < cells - 1; i++){
+            var cell = free(random, taken);
+            terminals.append(i == 0 ? "" : ",").append(i + 1).append("={")
+                    .append(cell % size).append(',').append(cell / size).append(',')
+                    .append(random.nextBoolean() ? "+10" : "-10").append('}');
+        }
+
+        var boulders = new StringBuilder();
+        var boulderCount = (int) Math.min(density*cells, cells - 1 - count);
+        for(int i = 0; i < boulderCount; i++){
+            var cell = free(random, taken);
+            boulders.append(i == 0 ? "" : ",").append(i + 1).append("={")
+                    .append(cell % size).append(',').append(cell / size).append('}');
+        }
+
+        var config = "Horizontal=" + size + "\n"
+                + "Vertical=" + size + "\n"
+                + "Terminal={" + terminals + "}\n"
+                + "Boulder={" + boulders + "}\n"
+                + "RobotStartState={0,0}\n"
+                + "K=100\n"
+                + "Episodes=100\n"
+                + "Discount=0.9\n"
+                + "alpha=0.2\n"
+                + "Noise=" + noise + "\n"
+                + "TransitionCost=-0.04\n"
+                + "Seed=1\n"
+                + "PrintBoards=false\n";
+
+        try {
+            var file = Files.createTempFile("grid-" + size + "-", ".txt");
+            file.toFile().deleteOnExit();
+            Files.writeString(file, config);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //a random cell that is not taken yet, marked as taken
+    private static int free(Random random, boolean[] taken){
+        int cell;
+        do {
+            cell = random.nextInt(taken.length);
+        } while(taken[cell]);
+        taken[cell] = true;
+        return cell;
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Tests of the hand written number formatting of the result writer
+ * **/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+//ResultWriter.fixed has to print exactly what String.format prints
+class ResultWriterTest {
+
+    //values on either side of a .xx5 boundary, where the rounding direction is decided
+    @Test
+    void matchesFormatAtHalfBoundaries(){
+        for(var decimals = 0; decimals <= 4; decimals++){
+            var scale = Math.pow(10, decimals);
+            for(var units = -100000; units <= 100000; units++){
+                var tie = (units + 0.5) / scale;
+                assertSame(tie, decimals);
+                assertSame(Math.nextUp(tie), decimals);
+                assertSame(Math.nextDown(tie), decimals);
+                assertSame(Math.nextUp(Math.nextUp(tie)), decimals);
+                assertSame(Math.nextDown(Math.nextDown(tie)), decimals);
+            }
+        }
+    }
+
+    @Test
+    void matchesFormatOnKnownTies(){
+        for(var value : new double[]{74.37499999999999, 74.375, 0.145, 1.005, 2.675, 0.125, -0.145, -0.005, 0.005})
+            assertSame(value, 2);
+    }
+
+    @Test
+    void matchesFormatOnRandomValues(){
+        var random = new SplittableRandom(42);
+        for(var i = 0; i < 1000000; i++)
+            assertSame(random.nextDouble(-1000, 1000), 2);
+    }
+
+    @Test
+    void matchesFormatOutsideTheFastPath(){
+        for(var value : new double[]{1e18, -1e18, 0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY})
+            assertSame(value, 2);
+    }
+
+    private static void assertSame(double value, int decimals){
+        assertEquals(String.format("%." + decimals + "f", value), ResultWriter.fixed(value, decimals), "value " + value);
+    }
+
+}